@@ -2,6 +2,7 @@ package com.cinehub.booking.adapter.client;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -22,6 +23,8 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ShowtimeClient {
 
+    private static final int FILTER_PAGE_SIZE = 500;
+
     @Qualifier("showtimeWebClient")
     private final WebClient showtimeWebClient;
 
@@ -47,32 +50,45 @@ public class ShowtimeClient {
     public List<ShowtimeDetailResponse> getShowtimesByFilter(
             UUID provinceId, UUID theaterId, LocalDate startOfDay, LocalDate endOfDay) {
 
-        return showtimeWebClient.get()
-                .uri(uriBuilder -> {
-                    var builder = uriBuilder.path("/api/showtimes/admin/search")
-                            .queryParam("page", 1)
-                            .queryParam("size", 10000); // Get all
-
-                    if (provinceId != null) {
-                        builder.queryParam("provinceId", provinceId);
-                    }
-                    if (theaterId != null) {
-                        builder.queryParam("theaterId", theaterId);
-                    }
-                    if (startOfDay != null) {
-                        builder.queryParam("startOfDay", startOfDay);
-                    }
-                    if (endOfDay != null) {
-                        builder.queryParam("endOfDay", endOfDay);
-                    }
-
-                    return builder.build();
-                })
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<PagedResponse<ShowtimeDetailResponse>>() {
-                })
-                .map(PagedResponse::getData)
-                .block();
+        // Duyệt theo cursor (keyset) thay vì 1 trang size=10000: mỗi trang có chi phí như nhau
+        // và không cần COUNT
+        List<ShowtimeDetailResponse> showtimes = new ArrayList<>();
+        String cursor = "";
+        do {
+            String pageCursor = cursor;
+            PagedResponse<ShowtimeDetailResponse> page = showtimeWebClient.get()
+                    .uri(uriBuilder -> {
+                        var builder = uriBuilder.path("/api/showtimes/admin/search")
+                                .queryParam("cursor", pageCursor)
+                                .queryParam("size", FILTER_PAGE_SIZE)
+                                .queryParam("count", "none");
+
+                        if (provinceId != null) {
+                            builder.queryParam("provinceId", provinceId);
+                        }
+                        if (theaterId != null) {
+                            builder.queryParam("theaterId", theaterId);
+                        }
+                        if (startOfDay != null) {
+                            builder.queryParam("startOfDay", startOfDay);
+                        }
+                        if (endOfDay != null) {
+                            builder.queryParam("endOfDay", endOfDay);
+                        }
+
+                        return builder.build();
+                    })
+                    .retrieve()
+                    .bodyToMono(new ParameterizedTypeReference<PagedResponse<ShowtimeDetailResponse>>() {
+                    })
+                    .block();
+            if (page == null || page.getData() == null) {
+                break;
+            }
+            showtimes.addAll(page.getData());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return showtimes;
     }
 
     public ShowtimeResponse fallbackGetShowtimeById(UUID showtimeId, Throwable t) {
@@ -112,5 +128,6 @@ public class ShowtimeClient {
         private int currentPage;
         private int totalPages;
         private long totalItems;
+        private String nextCursor;
     }
 }
@@ -0,0 +1,69 @@
+package com.cinehub.booking.dto.external;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bản ghi khóa ghế lưu trên Redis dưới dạng hash.
+ * Key: seat:{showtimeId}:{seatId}
+ * Fields: v, ownerType (USER/GUEST), ownerId, bookingId (sau khi map booking), expireAt (ms),
+ * lockId (định danh lần khóa, chỉ showtime-service dùng cho deadline và mapping booking; thêm field
+ * mà bên đọc bỏ qua được thì không cần tăng VERSION)
+ *
+ * Định dạng này dùng chung với showtime-service (com.cinehub.showtime.dto.model.SeatLockRecord),
+ * khi thay đổi field phải tăng VERSION và cập nhật cả 2 service.
+ */
+public record SeatLockRecord(
+        String ownerType,
+        String ownerId,
+        String bookingId,
+        long expireAt) {
+
+    public static final String VERSION = "2";
+    // Lock dạng string cũ "ownerType|ownerId|expireAt" (hoặc "bookingId|ownerType|ownerId|expireAt"),
+    // script đọc trả về với v = LEGACY_VERSION
+    public static final String LEGACY_VERSION = "1";
+
+    public static final String FIELD_VERSION = "v";
+    public static final String FIELD_OWNER_TYPE = "ownerType";
+    public static final String FIELD_OWNER_ID = "ownerId";
+    public static final String FIELD_BOOKING_ID = "bookingId";
+    public static final String FIELD_EXPIRE_AT = "expireAt";
+    public static final String FIELD_LOCK_ID = "lockId";
+
+    /** Thứ tự field khi đọc bằng HMGET */
+    public static final List<String> FIELDS = List.of(
+            FIELD_VERSION, FIELD_OWNER_TYPE, FIELD_OWNER_ID, FIELD_BOOKING_ID, FIELD_EXPIRE_AT);
+
+    public static final String OWNER_USER = "USER";
+    public static final String OWNER_GUEST = "GUEST";
+
+    public static String key(UUID showtimeId, UUID seatId) {
+        return "seat:" + showtimeId + ":" + seatId;
+    }
+
+    /**
+     * Đọc từ kết quả HMGET theo thứ tự {@link #FIELDS}; trả về null nếu lock không tồn tại
+     * hoặc có version lạ (showtime-service đã lên định dạng mới mà service này chưa cập nhật),
+     * khi đó coi như không giữ ghế thay vì đọc sai field.
+     */
+    public static SeatLockRecord fromFields(List<?> values) {
+        if (values == null || values.size() < FIELDS.size() || values.get(1) == null) {
+            return null;
+        }
+        Object version = values.get(0);
+        if (!VERSION.equals(version) && !LEGACY_VERSION.equals(version)) {
+            return null;
+        }
+        Object expireAt = values.get(4);
+        return new SeatLockRecord(
+                (String) values.get(1),
+                (String) values.get(2),
+                (String) values.get(3),
+                expireAt != null ? Long.parseLong((String) expireAt) : 0L);
+    }
+
+    public boolean isOwnedBy(String ownerType, UUID ownerId) {
+        return ownerId != null && this.ownerType.equals(ownerType) && this.ownerId.equals(ownerId.toString());
+    }
+}
@@ -1,11 +1,16 @@
 package com.cinehub.booking.service;
 
+import com.cinehub.booking.dto.external.SeatLockRecord;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -13,73 +18,102 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class SeatLockRedisService {
 
+    /**
+     * KEYS: lock key từng ghế; ARGV: {@link SeatLockRecord#FIELDS}.
+     * Trả về mảng phẳng, mỗi ghế #ARGV phần tử theo thứ tự FIELDS (nil nếu không có lock).
+     * Lock dạng string cũ (trước khi chuyển sang hash) được parse tại chỗ với v = LEGACY_VERSION
+     * thay vì HMGET lỗi WRONGTYPE; showtime-service sẽ chuyển nó sang hash ở lần ghi kế tiếp.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final DefaultRedisScript<List> READ_LOCKS_SCRIPT = new DefaultRedisScript<>("""
+            local out = {}
+            local width = #ARGV
+            for i, key in ipairs(KEYS) do
+                local row = {}
+                local keyType = redis.call('TYPE', key).ok
+                if keyType == 'hash' then
+                    row = redis.call('HMGET', key, unpack(ARGV))
+                elseif keyType == 'string' then
+                    local parts = {}
+                    for part in string.gmatch(redis.call('GET', key), '[^|]+') do
+                        parts[#parts + 1] = part
+                    end
+                    if #parts >= 3 then
+                        local offset = #parts - 3
+                        row = { '%s', parts[1 + offset], parts[2 + offset],
+                                offset == 1 and parts[1] or false, parts[3 + offset] }
+                    end
+                end
+                for j = 1, width do
+                    out[(i - 1) * width + j] = row[j] or false
+                end
+            end
+            return out
+            """.formatted(SeatLockRecord.LEGACY_VERSION), List.class);
+
     private final StringRedisTemplate redisTemplate;
 
+    public enum SeatOwnership {
+        OWNED,
+        NOT_LOCKED,
+        OWNED_BY_OTHER
+    }
+
     /**
      * Validate guest session owns the seats
      * Redis key format: seat:{showtimeId}:{seatId}
-     * Redis value format: GUEST|{guestSessionId}|{expireAt}
+     * Redis value format: hash {@link SeatLockRecord} (ownerType = GUEST)
      */
     public boolean validateGuestSessionOwnsSeats(UUID showtimeId, List<UUID> seatIds, UUID guestSessionId) {
-        for (UUID seatId : seatIds) {
-            String key = "seat:" + showtimeId + ":" + seatId;
-            String value = redisTemplate.opsForValue().get(key);
-
-            if (value == null) {
-                log.warn("Seat lock not found for seat {} in showtime {}", seatId, showtimeId);
-                return false;
-            }
-
-            // Parse value: GUEST|{guestSessionId}|{expireAt}
-            String[] parts = value.split("\\|");
-            if (parts.length < 2) {
-                log.warn("Invalid lock value format for seat {}: {}", seatId, value);
-                return false;
-            }
-
-            String ownerType = parts[0];
-            String ownerIdentifier = parts[1];
-
-            if (!"GUEST".equals(ownerType) || !ownerIdentifier.equals(guestSessionId.toString())) {
-                log.warn("Guest session {} does not own seat {} for showtime {} (owner: {}|{})",
-                        guestSessionId, seatId, showtimeId, ownerType, ownerIdentifier);
-                return false;
-            }
-        }
-        return true;
+        return allOwned(checkOwnership(showtimeId, seatIds, null, guestSessionId));
     }
 
     /**
      * Validate user owns the seats
      * Redis key format: seat:{showtimeId}:{seatId}
-     * Redis value format: USER|{userId}|{expireAt}
+     * Redis value format: hash {@link SeatLockRecord} (ownerType = USER)
      */
     public boolean validateUserOwnsSeats(UUID showtimeId, List<UUID> seatIds, UUID userId) {
-        for (UUID seatId : seatIds) {
-            String key = "seat:" + showtimeId + ":" + seatId;
-            String value = redisTemplate.opsForValue().get(key);
+        return allOwned(checkOwnership(showtimeId, seatIds, userId, null));
+    }
 
-            if (value == null) {
-                log.warn("Seat lock not found for seat {} in showtime {}", seatId, showtimeId);
-                return false;
-            }
+    /**
+     * Kiểm tra quyền sở hữu lock của tất cả ghế trong 1 round trip (1 Lua script).
+     * Trả về kết quả cho từng ghế theo thứ tự seatIds.
+     */
+    public Map<UUID, SeatOwnership> checkOwnership(UUID showtimeId, List<UUID> seatIds, UUID userId,
+            UUID guestSessionId) {
+        String ownerType = userId != null ? SeatLockRecord.OWNER_USER : SeatLockRecord.OWNER_GUEST;
+        UUID ownerId = userId != null ? userId : guestSessionId;
 
-            // Parse value: USER|{userId}|{expireAt}
-            String[] parts = value.split("\\|");
-            if (parts.length < 2) {
-                log.warn("Invalid lock value format for seat {}: {}", seatId, value);
-                return false;
-            }
+        List<String> keys = new ArrayList<>(seatIds.size());
+        for (UUID seatId : seatIds) {
+            keys.add(SeatLockRecord.key(showtimeId, seatId));
+        }
+        int width = SeatLockRecord.FIELDS.size();
+        List<?> locks = redisTemplate.execute(READ_LOCKS_SCRIPT, keys,
+                SeatLockRecord.FIELDS.toArray());
 
-            String ownerType = parts[0];
-            String ownerIdentifier = parts[1];
+        Map<UUID, SeatOwnership> verdicts = new LinkedHashMap<>();
+        for (int i = 0; i < seatIds.size(); i++) {
+            UUID seatId = seatIds.get(i);
+            SeatLockRecord lock = SeatLockRecord.fromFields(locks.subList(i * width, (i + 1) * width));
 
-            if (!"USER".equals(ownerType) || !ownerIdentifier.equals(userId.toString())) {
-                log.warn("User {} does not own seat {} for showtime {} (owner: {}|{})",
-                        userId, seatId, showtimeId, ownerType, ownerIdentifier);
-                return false;
+            if (lock == null) {
+                log.warn("Seat lock not found for seat {} in showtime {}", seatId, showtimeId);
+                verdicts.put(seatId, SeatOwnership.NOT_LOCKED);
+            } else if (!lock.isOwnedBy(ownerType, ownerId)) {
+                log.warn("{} {} does not own seat {} for showtime {} (owner: {}|{})",
+                        ownerType, ownerId, seatId, showtimeId, lock.ownerType(), lock.ownerId());
+                verdicts.put(seatId, SeatOwnership.OWNED_BY_OTHER);
+            } else {
+                verdicts.put(seatId, SeatOwnership.OWNED);
             }
         }
-        return true;
+        return verdicts;
+    }
+
+    private boolean allOwned(Map<UUID, SeatOwnership> verdicts) {
+        return verdicts.values().stream().allMatch(SeatOwnership.OWNED::equals);
     }
 }
@@ -45,6 +45,7 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -106,23 +107,19 @@ public class BookingServiceImpl implements BookingService {
                                 .map(SeatSelectionDetail::getSeatId)
                                 .toList();
 
-                boolean ownsSeats;
-                if (request.getGuestSessionId() != null) {
-                        ownsSeats = seatLockRedisService.validateGuestSessionOwnsSeats(
-                                        request.getShowtimeId(),
-                                        seatIds,
-                                        request.getGuestSessionId());
-                        if (!ownsSeats) {
-                                throw new BookingException("Guest session does not own the selected seats");
-                        }
-                } else {
-                        ownsSeats = seatLockRedisService.validateUserOwnsSeats(
-                                        request.getShowtimeId(),
-                                        seatIds,
-                                        request.getUserId());
-                        if (!ownsSeats) {
-                                throw new BookingException("User does not own the selected seats");
-                        }
+                // Kiểm tra lock của tất cả ghế trong 1 round trip Redis
+                Map<UUID, SeatLockRedisService.SeatOwnership> ownership = seatLockRedisService.checkOwnership(
+                                request.getShowtimeId(),
+                                seatIds,
+                                request.getUserId(),
+                                request.getGuestSessionId());
+                List<UUID> unownedSeats = ownership.entrySet().stream()
+                                .filter(e -> e.getValue() != SeatLockRedisService.SeatOwnership.OWNED)
+                                .map(Map.Entry::getKey)
+                                .toList();
+                if (!unownedSeats.isEmpty()) {
+                        throw new BookingException((request.getGuestSessionId() != null ? "Guest session" : "User")
+                                        + " does not own the selected seats: " + unownedSeats);
                 }
 
                 // Lấy thông tin movie để lưu snapshot
@@ -1,31 +0,0 @@
-package com.cinehub.showtime.config;
-
-import com.cinehub.showtime.listener.RedisKeyExpirationListener;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.listener.ChannelTopic;
-import org.springframework.data.redis.listener.RedisMessageListenerContainer;
-import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
-
-@Configuration
-public class RedisEventConfig {
-
-    public static final String KEY_EXPIRED_CHANNEL = "__keyevent@0__:expired";
-
-    @Bean
-    public RedisMessageListenerContainer container(
-            RedisConnectionFactory connectionFactory,
-            MessageListenerAdapter listenerAdapter) {
-
-        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
-        container.setConnectionFactory(connectionFactory);
-        container.addMessageListener(listenerAdapter, new ChannelTopic(KEY_EXPIRED_CHANNEL));
-        return container;
-    }
-
-    @Bean
-    public MessageListenerAdapter listenerAdapter(RedisKeyExpirationListener listener) {
-        return new MessageListenerAdapter(listener, "handleExpiredKey");
-    }
-}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.cinehub.showtime.config;
+
+import com.cinehub.showtime.service.ScheduleCacheService;
+import com.cinehub.showtime.websocket.SeatUpdateRelay;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class RedisPubSubConfig {
+
+    @Bean
+    public RedisMessageListenerContainer container(
+            RedisConnectionFactory connectionFactory,
+            MessageListenerAdapter seatUpdateListenerAdapter,
+            MessageListenerAdapter scheduleCacheListenerAdapter) {
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(redisListenerExecutor());
+        container.addMessageListener(seatUpdateListenerAdapter,
+                new PatternTopic(SeatUpdateRelay.CHANNEL_PREFIX + "*"));
+        container.addMessageListener(scheduleCacheListenerAdapter,
+                new ChannelTopic(ScheduleCacheService.INVALIDATION_CHANNEL));
+        return container;
+    }
+
+    /**
+     * Mặc định container dùng SimpleAsyncTaskExecutor (1 thread mới cho mỗi message), nên 2 frame
+     * seat-updates của cùng suất chiếu có thể tới handler ngược thứ tự: client thấy LOCKED cũ sau AVAILABLE
+     * và seq dùng cho resume ?lastSeq bị đảo. 1 thread với hàng đợi FIFO giữ đúng thứ tự Redis giao;
+     * handler chỉ đưa frame vào hàng đợi gửi của từng session nên không chặn lâu.
+     */
+    // Không khai báo là bean: 1 bean Executor sẽ làm Spring Boot bỏ applicationTaskExecutor mặc định
+    private ThreadPoolTaskExecutor redisListenerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("redis-listener-");
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public MessageListenerAdapter seatUpdateListenerAdapter(SeatUpdateRelay relay) {
+        return new MessageListenerAdapter(relay, "handleMessage");
+    }
+
+    @Bean
+    public MessageListenerAdapter scheduleCacheListenerAdapter(ScheduleCacheService scheduleCacheService) {
+        return new MessageListenerAdapter(scheduleCacheService, "handleInvalidation");
+    }
+}
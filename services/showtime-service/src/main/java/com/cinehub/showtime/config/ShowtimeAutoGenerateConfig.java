@@ -17,4 +17,9 @@ public class ShowtimeAutoGenerateConfig {
     // Khung giờ vàng
     private int primeTimeStartHour = 17;
     private int primeTimeEnd = 22;
+
+    // Số luồng lập lịch song song (0 = số CPU)
+    private int parallelism = 0;
+    // Số suất chiếu mỗi lần saveAll (1 transaction)
+    private int writeBatchSize = 1000;
 }
@@ -0,0 +1,60 @@
+package com.cinehub.showtime.controller;
+
+import com.cinehub.showtime.dto.response.AdmissionResponse;
+import com.cinehub.showtime.security.AuthChecker;
+import com.cinehub.showtime.service.AdmissionControlService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/showtimes/admission")
+@RequiredArgsConstructor
+public class AdmissionController {
+
+        private final AdmissionControlService admissionControlService;
+
+        @PostMapping("/{showtimeId}/join")
+        public ResponseEntity<AdmissionResponse> join(
+                        @PathVariable UUID showtimeId,
+                        @RequestParam(required = false) UUID userId,
+                        @RequestParam(required = false) UUID guestSessionId) {
+                return ResponseEntity.ok(admissionControlService.join(showtimeId, userId, guestSessionId));
+        }
+
+        @PostMapping("/{showtimeId}/leave")
+        public ResponseEntity<Void> leave(
+                        @PathVariable UUID showtimeId,
+                        @RequestParam(required = false) UUID userId,
+                        @RequestParam(required = false) UUID guestSessionId) {
+                admissionControlService.leave(showtimeId, userId, guestSessionId);
+                return ResponseEntity.noContent().build();
+        }
+
+        @PutMapping("/{showtimeId}")
+        public ResponseEntity<Map<String, Object>> enable(
+                        @PathVariable UUID showtimeId,
+                        @RequestParam(required = false) Integer maxActive) {
+                AuthChecker.requireManagerOrAdmin();
+                log.info("API: Enabling waiting room for showtime {}", showtimeId);
+                admissionControlService.enable(showtimeId, maxActive);
+                return ResponseEntity.ok(Map.of(
+                                "message", "Waiting room enabled",
+                                "showtimeId", showtimeId));
+        }
+
+        @DeleteMapping("/{showtimeId}")
+        public ResponseEntity<Map<String, Object>> disable(@PathVariable UUID showtimeId) {
+                AuthChecker.requireManagerOrAdmin();
+                log.info("API: Disabling waiting room for showtime {}", showtimeId);
+                admissionControlService.disable(showtimeId);
+                return ResponseEntity.ok(Map.of(
+                                "message", "Waiting room disabled",
+                                "showtimeId", showtimeId));
+        }
+}
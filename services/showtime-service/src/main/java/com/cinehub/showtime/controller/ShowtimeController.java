@@ -18,6 +18,7 @@ import com.cinehub.showtime.service.ShowtimeService;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
@@ -32,6 +33,7 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api/showtimes")
 @RequiredArgsConstructor
+@Slf4j
 public class ShowtimeController {
 
     private final ShowtimeService showtimeService;
@@ -101,27 +103,29 @@ public class ShowtimeController {
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String sortType) {
+            @RequestParam(required = false) String sortType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "exact") String count) {
         AuthChecker.requireManagerOrAdmin();
 
-        // Debug log
-        System.out.println("=== DEBUG SHOWTIME SEARCH ===");
-        System.out.println("startOfDay: " + startOfDay);
-        System.out.println("endOfDay: " + endOfDay);
-        System.out.println("fromTime: " + fromTime);
-        System.out.println("toTime: " + toTime);
-
         // Convert LocalDate to LocalDateTime for service layer
         LocalDateTime startDateTime = startOfDay != null ? startOfDay.atStartOfDay() : null;
         LocalDateTime endDateTime = endOfDay != null ? endOfDay.atTime(23, 59, 59) : null;
-
-        System.out.println("startDateTime: " + startDateTime);
-        System.out.println("endDateTime: " + endDateTime);
-        System.out.println("===============================");
+        log.debug("Admin showtime search: startOfDay={}, endOfDay={}, fromTime={}, toTime={}, "
+                + "startDateTime={}, endDateTime={}", startOfDay, endOfDay, fromTime, toTime,
+                startDateTime, endDateTime);
+
+        // Có tham số cursor (rỗng = trang đầu): phân trang keyset theo (startTime, id), bỏ qua page/sortBy.
+        // count (exact/estimate/none) áp dụng cho cả 2 kiểu phân trang
+        if (cursor != null) {
+            return ResponseEntity.ok(showtimeService.getAvailableShowtimesByCursor(
+                    provinceId, theaterId, roomId, movieId, showtimeId, startDateTime, endDateTime, fromTime,
+                    toTime, cursor, size, count));
+        }
 
         PagedResponse<ShowtimeDetailResponse> response = showtimeService.getAllAvailableShowtimes(
                 provinceId, theaterId, roomId, movieId, showtimeId, startDateTime, endDateTime, fromTime,
-                toTime, page, size, sortBy, sortType);
+                toTime, page, size, sortBy, sortType, count);
         return ResponseEntity.ok(response);
     }
 
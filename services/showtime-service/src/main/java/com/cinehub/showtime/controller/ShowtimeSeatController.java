@@ -7,7 +7,7 @@ import com.cinehub.showtime.dto.request.BatchInitializeSeatsRequest;
 import com.cinehub.showtime.security.AuthChecker;
 import com.cinehub.showtime.security.InternalAuthChecker;
 import com.cinehub.showtime.service.ShowtimeSeatService;
-import com.cinehub.showtime.websocket.SeatLockWebSocketHandler;
+import com.cinehub.showtime.websocket.SeatUpdateRelay;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,7 +22,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 public class ShowtimeSeatController {
 
     private final ShowtimeSeatService showtimeSeatService;
-    private final SeatLockWebSocketHandler webSocketHandler;
+    private final SeatUpdateRelay seatUpdateRelay;
     private final InternalAuthChecker internalAuthChecker;
 
     @GetMapping("/{showtimeId}/seats")
@@ -46,7 +46,7 @@ public class ShowtimeSeatController {
         ShowtimeSeatResponse response = showtimeSeatService.updateSeatStatus(request);
 
         // Push WebSocket update
-        webSocketHandler.broadcastToShowtime(showtimeId, response);
+        seatUpdateRelay.publish(showtimeId, response);
 
         return ResponseEntity.ok(response);
     }
@@ -0,0 +1,25 @@
+package com.cinehub.showtime.dto.model;
+
+import com.cinehub.showtime.entity.ShowtimeStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 1 dòng lịch chiếu của phim (suất chiếu + rạp + phòng), lấy bằng projection
+ * thay vì load entity Showtime/Theater/Room.
+ */
+public record MovieScheduleRow(
+        UUID showtimeId,
+        UUID movieId,
+        UUID theaterId,
+        String theaterName,
+        String theaterNameEn,
+        String theaterAddress,
+        UUID roomId,
+        String roomName,
+        String roomNameEn,
+        LocalDateTime startTime,
+        LocalDateTime endTime,
+        ShowtimeStatus status) {
+}
@@ -0,0 +1,58 @@
+package com.cinehub.showtime.dto.model;
+
+import java.util.UUID;
+
+/**
+ * Bản ghi khóa ghế lưu trên Redis dưới dạng hash.
+ * Key: seat:{showtimeId}:{seatId}
+ * Fields: v, ownerType (USER/GUEST), ownerId, bookingId (sau khi map booking), expireAt (ms),
+ * lockId (định danh lần khóa, chỉ showtime-service dùng cho deadline và mapping booking; thêm field
+ * mà bên đọc bỏ qua được thì không cần tăng VERSION)
+ *
+ * Định dạng này dùng chung với booking-service (com.cinehub.booking.dto.external.SeatLockRecord),
+ * khi thay đổi field phải tăng VERSION và cập nhật cả 2 service.
+ * Service này chỉ ghi (qua Lua script trong SeatLockService), booking-service đọc và kiểm tra field v.
+ * Lock dạng string cũ còn sót khi deploy được các script tự chuyển sang hash trước khi sửa.
+ */
+public record SeatLockRecord(
+        String ownerType,
+        String ownerId,
+        String bookingId,
+        long expireAt) {
+
+    public static final String VERSION = "2";
+
+    public static final String FIELD_VERSION = "v";
+    public static final String FIELD_OWNER_TYPE = "ownerType";
+    public static final String FIELD_OWNER_ID = "ownerId";
+    public static final String FIELD_BOOKING_ID = "bookingId";
+    public static final String FIELD_EXPIRE_AT = "expireAt";
+    public static final String FIELD_LOCK_ID = "lockId";
+
+    public static final String OWNER_USER = "USER";
+    public static final String OWNER_GUEST = "GUEST";
+
+    public static String key(UUID showtimeId, UUID seatId) {
+        return "seat:" + showtimeId + ":" + seatId;
+    }
+
+    public static SeatLockRecord forOwner(UUID userId, UUID guestSessionId, long expireAt) {
+        if (userId != null) {
+            return new SeatLockRecord(OWNER_USER, userId.toString(), null, expireAt);
+        }
+        return new SeatLockRecord(OWNER_GUEST, guestSessionId.toString(), null, expireAt);
+    }
+
+    /**
+     * Owner dạng [ownerType, ownerId] để so sánh field trong script.
+     */
+    public static String[] owner(UUID userId, UUID guestSessionId) {
+        if (userId != null) {
+            return new String[] { OWNER_USER, userId.toString() };
+        }
+        if (guestSessionId != null) {
+            return new String[] { OWNER_GUEST, guestSessionId.toString() };
+        }
+        return new String[] { "", "" };
+    }
+}
@@ -0,0 +1,37 @@
+package com.cinehub.showtime.dto.model;
+
+import com.cinehub.showtime.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Vị trí của suất chiếu cuối cùng trên trang trước khi phân trang keyset theo (startTime, id).
+ * Client chỉ nhận chuỗi mã hóa, không phụ thuộc vào cấu trúc bên trong.
+ */
+public record ShowtimeCursor(LocalDateTime startTime, UUID id) {
+
+    public String encode() {
+        String raw = startTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null nếu cursor rỗng (trang đầu tiên)
+     */
+    public static ShowtimeCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new ShowtimeCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+}
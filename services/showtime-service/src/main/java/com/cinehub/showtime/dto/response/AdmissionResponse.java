@@ -0,0 +1,19 @@
+package com.cinehub.showtime.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AdmissionResponse {
+    private UUID showtimeId;
+    private String status; // OPEN (không bật phòng chờ) / ADMITTED / WAITING
+    private long position; // vị trí trong hàng chờ, 0 nếu đã được vào
+    private long passExpiresAt; // thời điểm hết hạn lượt chọn ghế (ms), 0 nếu chưa có
+}
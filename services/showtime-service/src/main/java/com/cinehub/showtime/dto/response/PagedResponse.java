@@ -17,4 +17,9 @@ public class PagedResponse<T> {
     private int size;
     private long totalElements;
     private int totalPages;
+    // false khi totalElements/totalPages không phải số chính xác: count=estimate đã chạm giới hạn đếm,
+    // hoặc count=none (totalElements = totalPages = -1)
+    private boolean countExact;
+    // Phân trang keyset: cursor của trang tiếp theo, null nếu đã hết
+    private String nextCursor;
 }
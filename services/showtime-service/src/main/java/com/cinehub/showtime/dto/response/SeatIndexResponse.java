@@ -0,0 +1,24 @@
+package com.cinehub.showtime.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Từ điển seatIndex gửi 1 lần khi client dùng giao thức nhị phân kết nối:
+ * seatIds.get(i) là ghế có seatIndex = i trong các frame delta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatIndexResponse {
+    @Builder.Default
+    private String type = "SEAT_INDEX";
+    private UUID showtimeId;
+    private List<UUID> seatIds;
+}
@@ -0,0 +1,18 @@
+package com.cinehub.showtime.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatLockBatchResponse {
+    private UUID showtimeId;
+    private List<SeatLockResponse> seats; // nhiều thay đổi ghế gộp trong 1 frame WebSocket
+}
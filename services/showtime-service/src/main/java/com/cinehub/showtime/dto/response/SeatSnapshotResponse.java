@@ -0,0 +1,25 @@
+package com.cinehub.showtime.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Toàn bộ trạng thái ghế tại seq, gửi khi client kết nối lại nhưng không thể
+ * phát lại các frame bị lỡ. Client bỏ qua các frame có seq <= seq của snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatSnapshotResponse {
+    @Builder.Default
+    private String type = "SNAPSHOT";
+    private UUID showtimeId;
+    private long seq;
+    private List<ShowtimeSeatResponse> seats;
+}
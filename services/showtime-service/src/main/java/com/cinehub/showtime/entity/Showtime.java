@@ -1,5 +1,6 @@
 package com.cinehub.showtime.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -7,6 +8,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -19,7 +21,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "showtime")
+@Table(name = "showtime", indexes = {
+        @Index(name = "idx_showtime_movie_start", columnList = "movie_id, start_time"),
+        @Index(name = "idx_showtime_start_id", columnList = "start_time, id"),
+        @Index(name = "idx_showtime_minute_start", columnList = "start_minute_of_day, start_time"),
+        @Index(name = "idx_showtime_theater_minute", columnList = "theater_id, start_minute_of_day, start_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -44,6 +51,12 @@ public class Showtime {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
 
+    // Phút trong ngày của giờ bắt đầu (0-1439), do Postgres tính từ start_time để lọc theo khung giờ bằng index
+    @Column(name = "start_minute_of_day", insertable = false, updatable = false,
+            columnDefinition = "integer GENERATED ALWAYS AS "
+                    + "((EXTRACT(HOUR FROM start_time) * 60 + EXTRACT(MINUTE FROM start_time))::integer) STORED")
+    private Integer startMinuteOfDay;
+
     @Enumerated(EnumType.STRING)
     @Builder.Default
     private ShowtimeStatus status = ShowtimeStatus.ACTIVE;
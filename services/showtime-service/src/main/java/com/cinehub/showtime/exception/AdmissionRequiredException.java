@@ -0,0 +1,11 @@
+package com.cinehub.showtime.exception;
+
+/**
+ * Exception ném ra khi suất chiếu đang bật phòng chờ và phiên chưa được cấp lượt chọn ghế.
+ */
+public class AdmissionRequiredException extends RuntimeException {
+
+    public AdmissionRequiredException(String message) {
+        super(message);
+    }
+}
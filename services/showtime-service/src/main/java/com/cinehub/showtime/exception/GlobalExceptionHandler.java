@@ -23,4 +23,22 @@ public class GlobalExceptionHandler {
         // nguyên (ghế đã bị khóa)
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(AdmissionRequiredException.class)
+    public ResponseEntity<String> handleAdmissionRequiredException(AdmissionRequiredException ex) {
+        // HTTP 429: Suất chiếu đang bật phòng chờ, client phải xếp hàng trước khi chọn ghế
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursorException(InvalidCursorException ex) {
+        // HTTP 400: cursor phân trang không hợp lệ
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<String> handleInvalidPageRequestException(InvalidPageRequestException ex) {
+        // HTTP 400: page/size/count không hợp lệ
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+}
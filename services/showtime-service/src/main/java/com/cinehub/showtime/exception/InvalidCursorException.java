@@ -0,0 +1,11 @@
+package com.cinehub.showtime.exception;
+
+/**
+ * Exception ném ra khi cursor phân trang không giải mã được (bị sửa hoặc hết hạn định dạng).
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
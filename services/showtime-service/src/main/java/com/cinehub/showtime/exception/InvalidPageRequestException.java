@@ -0,0 +1,11 @@
+package com.cinehub.showtime.exception;
+
+/**
+ * Exception ném ra khi tham số phân trang không hợp lệ (page/size < 1, kiểu đếm count không hỗ trợ).
+ */
+public class InvalidPageRequestException extends RuntimeException {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
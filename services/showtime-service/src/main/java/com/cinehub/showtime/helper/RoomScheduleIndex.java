@@ -0,0 +1,55 @@
+package com.cinehub.showtime.helper;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Lịch bận của các phòng trong bộ nhớ để kiểm tra trùng giờ mà không truy vấn DB cho từng suất chiếu.
+ * Mỗi phòng giữ các khoảng [start, end) đã gộp lại thành các khối rời nhau, sắp theo start,
+ * nên kiểm tra trùng chỉ cần 1 lần tra TreeMap (O(log n)).
+ */
+public class RoomScheduleIndex {
+
+    private final Map<UUID, TreeMap<LocalDateTime, LocalDateTime>> busyByRoom = new HashMap<>();
+
+    public void add(UUID roomId, LocalDateTime start, LocalDateTime end) {
+        TreeMap<LocalDateTime, LocalDateTime> busy = busyByRoom.computeIfAbsent(roomId, id -> new TreeMap<>());
+
+        // Gộp với các khối chồng lấn hoặc liền kề để các khối luôn rời nhau
+        LocalDateTime mergedStart = start;
+        LocalDateTime mergedEnd = end;
+        Map.Entry<LocalDateTime, LocalDateTime> previous = busy.floorEntry(start);
+        if (previous != null && !previous.getValue().isBefore(start)) {
+            mergedStart = previous.getKey();
+            mergedEnd = max(mergedEnd, previous.getValue());
+            busy.remove(previous.getKey());
+        }
+        Map.Entry<LocalDateTime, LocalDateTime> next = busy.ceilingEntry(mergedStart);
+        while (next != null && !next.getKey().isAfter(mergedEnd)) {
+            mergedEnd = max(mergedEnd, next.getValue());
+            busy.remove(next.getKey());
+            next = busy.ceilingEntry(mergedStart);
+        }
+        busy.put(mergedStart, mergedEnd);
+    }
+
+    /**
+     * Trùng nếu có khoảng bận thỏa start < end của suất mới và end > start của suất mới.
+     */
+    public boolean overlaps(UUID roomId, LocalDateTime start, LocalDateTime end) {
+        TreeMap<LocalDateTime, LocalDateTime> busy = busyByRoom.get(roomId);
+        if (busy == null) {
+            return false;
+        }
+        // Các khối rời nhau: khối cuối cùng bắt đầu trước end có end lớn nhất trong số đó
+        Map.Entry<LocalDateTime, LocalDateTime> candidate = busy.lowerEntry(end);
+        return candidate != null && candidate.getValue().isAfter(start);
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,199 @@
+package com.cinehub.showtime.helper;
+
+import com.cinehub.showtime.client.MovieSummaryResponse;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Chọn phim ngẫu nhiên theo trọng số bằng alias method (Vose), bộ nhớ tỉ lệ với số phim
+ * chứ không phải tổng trọng số.
+ * Lọc theo thời lượng: phim được sắp theo thời lượng tăng dần và gom theo nhóm cùng thời lượng,
+ * các phim vừa slot luôn là 1 tiền tố các nhóm. Mỗi nhóm có 1 bảng alias riêng (tổng bộ nhớ O(số phim));
+ * mỗi lần rút chọn nhóm theo tổng trọng số tích lũy (tìm nhị phân, O(log số nhóm thời lượng)) rồi rút
+ * trong nhóm bằng bảng alias (O(1)). Đối tượng bất biến sau khi dựng, dùng chung được giữa các luồng.
+ */
+public final class WeightedMovieSampler {
+
+    private static final int DEFAULT_DURATION_MINUTES = 120;
+
+    // Sắp theo thời lượng tăng dần
+    private final MovieSummaryResponse[] movies;
+    private final int[] durations;
+    // Nhóm b gồm movies[bucketEnds[b - 1] .. bucketEnds[b]) (bucketEnds[-1] = 0), cùng thời lượng
+    private final int[] bucketEnds;
+    private final AliasTable[] bucketTables;
+    // Tổng trọng số (đã bỏ giá trị âm) của các nhóm 0..b
+    private final double[] bucketCumulative;
+    // Sắp theo popularity giảm dần, cho giờ vàng
+    private final List<MovieSummaryResponse> byPopularity;
+
+    private WeightedMovieSampler(List<MovieSummaryResponse> source, ToDoubleFunction<MovieSummaryResponse> weight) {
+        this.movies = source.stream()
+                .distinct()
+                .sorted(Comparator.comparingInt(WeightedMovieSampler::durationOf))
+                .toArray(MovieSummaryResponse[]::new);
+        this.durations = Arrays.stream(movies).mapToInt(WeightedMovieSampler::durationOf).toArray();
+
+        double[] weights = Arrays.stream(movies).mapToDouble(weight).toArray();
+        int[] ends = new int[movies.length];
+        int bucketCount = 0;
+        for (int k = 1; k <= movies.length; k++) {
+            if (k == movies.length || durations[k] != durations[k - 1]) {
+                ends[bucketCount++] = k;
+            }
+        }
+        this.bucketEnds = Arrays.copyOf(ends, bucketCount);
+        this.bucketTables = new AliasTable[bucketCount];
+        this.bucketCumulative = new double[bucketCount];
+        double cumulative = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            int start = bucketStart(b);
+            bucketTables[b] = AliasTable.build(Arrays.copyOfRange(weights, start, bucketEnds[b]));
+            for (int i = start; i < bucketEnds[b]; i++) {
+                cumulative += Math.max(weights[i], 0);
+            }
+            bucketCumulative[b] = cumulative;
+        }
+
+        this.byPopularity = Arrays.stream(movies)
+                .sorted(Comparator.comparingDouble(WeightedMovieSampler::popularityOf).reversed())
+                .toList();
+    }
+
+    public static WeightedMovieSampler of(List<MovieSummaryResponse> movies,
+            ToDoubleFunction<MovieSummaryResponse> weight) {
+        return new WeightedMovieSampler(movies, weight);
+    }
+
+    public boolean isEmpty() {
+        return movies.length == 0;
+    }
+
+    /**
+     * Các phim (không trùng), popularity giảm dần.
+     */
+    public List<MovieSummaryResponse> moviesByPopularity() {
+        return byPopularity;
+    }
+
+    /**
+     * Rút 1 phim theo trọng số trong số các phim dài không quá maxDurationMinutes, null nếu không phim nào vừa.
+     */
+    public MovieSummaryResponse sample(RandomGenerator random, long maxDurationMinutes) {
+        int fitting = countFitting(maxDurationMinutes);
+        if (fitting == 0) {
+            return null;
+        }
+        // fitting luôn là biên của 1 nhóm: các nhóm 0..buckets-1 vừa slot
+        int buckets = Arrays.binarySearch(bucketEnds, fitting) + 1;
+        double total = bucketCumulative[buckets - 1];
+        if (total <= 0) {
+            // Tổng trọng số bằng 0: chia đều
+            return movies[random.nextInt(fitting)];
+        }
+        int bucket = pickBucket(random.nextDouble() * total, buckets);
+        return movies[bucketStart(bucket) + bucketTables[bucket].sample(random)];
+    }
+
+    /**
+     * Phim có popularity cao nhất dài không quá maxDurationMinutes.
+     */
+    public MovieSummaryResponse mostPopular(long maxDurationMinutes) {
+        for (MovieSummaryResponse movie : byPopularity) {
+            if (durationOf(movie) <= maxDurationMinutes) {
+                return movie;
+            }
+        }
+        return null;
+    }
+
+    // Nhóm đầu tiên (trong buckets nhóm đầu) có trọng số tích lũy > target; nhóm trọng số 0 không bao giờ được chọn
+    private int pickBucket(double target, int buckets) {
+        int low = 0;
+        int high = buckets - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bucketCumulative[mid] > target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int bucketStart(int bucket) {
+        return bucket == 0 ? 0 : bucketEnds[bucket - 1];
+    }
+
+    // Số phim có thời lượng <= maxDurationMinutes (tìm nhị phân trên mảng đã sắp)
+    private int countFitting(long maxDurationMinutes) {
+        int low = 0;
+        int high = durations.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (durations[mid] <= maxDurationMinutes) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static int durationOf(MovieSummaryResponse movie) {
+        return movie.getTime() != null ? movie.getTime() : DEFAULT_DURATION_MINUTES;
+    }
+
+    private static double popularityOf(MovieSummaryResponse movie) {
+        return movie.getPopularity() != null ? movie.getPopularity() : 0.0;
+    }
+
+    private record AliasTable(double[] probability, int[] alias) {
+
+        static AliasTable build(double[] weights) {
+            int n = weights.length;
+            double total = Arrays.stream(weights).map(w -> Math.max(w, 0)).sum();
+            double[] scaled = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Tổng trọng số bằng 0: chia đều
+                scaled[i] = total > 0 ? Math.max(weights[i], 0) * n / total : 1.0;
+            }
+
+            double[] probability = new double[n];
+            int[] alias = new int[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                (scaled[i] < 1.0 ? small : large).push(i);
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int less = small.pop();
+                int more = large.pop();
+                probability[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1.0;
+                (scaled[more] < 1.0 ? small : large).push(more);
+            }
+            // Phần còn lại (do sai số làm tròn) có xác suất 1
+            while (!large.isEmpty()) {
+                probability[large.pop()] = 1.0;
+            }
+            while (!small.isEmpty()) {
+                probability[small.pop()] = 1.0;
+            }
+            return new AliasTable(probability, alias);
+        }
+
+        int sample(RandomGenerator random) {
+            int column = random.nextInt(probability.length);
+            return random.nextDouble() < probability[column] ? column : alias[column];
+        }
+    }
+}
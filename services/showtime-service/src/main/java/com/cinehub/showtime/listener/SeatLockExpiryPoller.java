@@ -0,0 +1,205 @@
+package com.cinehub.showtime.listener;
+
+import com.cinehub.showtime.service.SeatLockDeadlineTracker;
+import com.cinehub.showtime.service.SeatLockMetrics;
+import com.cinehub.showtime.service.SeatLockService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Giải phóng ghế khi khóa hết hạn dựa trên deadline set của {@link SeatLockDeadlineTracker}.
+ * Các shard được chia giữa các replica bằng lease trên Redis; việc claim lock hết hạn là
+ * atomic nên mỗi lock chỉ được xử lý bởi đúng 1 replica.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatLockExpiryPoller {
+
+    private static final String LEASE_KEY_PREFIX = "seat_lock_deadlines:lease:";
+    private static final String INSTANCES_KEY = "seat_lock_deadlines:instances";
+
+    private final SeatLockService seatLockService;
+    private final SeatLockDeadlineTracker deadlineTracker;
+    private final StringRedisTemplate redisTemplate;
+    private final SeatLockMetrics seatLockMetrics;
+
+    @Value("${lock.expiry.batch-size:200}")
+    private int batchSize;
+
+    @Value("${lock.expiry.lease-ms:5000}")
+    private long leaseMillis;
+
+    @Value("${lock.expiry.retry-delay-ms:5000}")
+    private long retryDelayMillis;
+
+    // Lock đã claim quá thời gian này mới bị coi là bỏ dở (replica chết); phải lớn hơn thời gian xử lý 1 lô
+    @Value("${lock.expiry.processing-timeout-ms:60000}")
+    private long processingTimeoutMillis;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<Integer> ownedShards = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Lấy mới hoặc gia hạn lease của shard. ARGV[1]: instanceId, ARGV[2]: lease (ms)
+     */
+    private static final String ACQUIRE_LEASE_SCRIPT = """
+            local owner = redis.call('GET', KEYS[1])
+            if owner == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            if not owner then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            return 0
+            """;
+
+    private static final String RELEASE_LEASE_SCRIPT = """
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """;
+
+    private final DefaultRedisScript<Long> acquireLeaseScript = new DefaultRedisScript<>(ACQUIRE_LEASE_SCRIPT,
+            Long.class);
+    private final DefaultRedisScript<Long> releaseLeaseScript = new DefaultRedisScript<>(RELEASE_LEASE_SCRIPT,
+            Long.class);
+
+    @Scheduled(fixedDelayString = "${lock.expiry.poll-interval-ms:500}")
+    public void poll() {
+        try {
+            rebalanceShards();
+            for (Integer shard : ownedShards) {
+                processShard(shard);
+            }
+        } catch (Exception e) {
+            log.error("EXPIRY: Failed to poll seat lock deadlines: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void releaseShards() {
+        for (Integer shard : ownedShards) {
+            redisTemplate.execute(releaseLeaseScript, List.of(LEASE_KEY_PREFIX + shard), instanceId);
+        }
+        ownedShards.clear();
+        redisTemplate.opsForZSet().remove(INSTANCES_KEY, instanceId);
+    }
+
+    /**
+     * Mỗi replica giữ tối đa ceil(shards / số replica đang sống) shard.
+     */
+    private void rebalanceShards() {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(INSTANCES_KEY, instanceId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(INSTANCES_KEY, 0, now - leaseMillis);
+
+        Long liveInstances = redisTemplate.opsForZSet().zCard(INSTANCES_KEY);
+        int shardCount = deadlineTracker.getShardCount();
+        int maxShards = (int) Math.ceil((double) shardCount / Math.max(1, liveInstances != null ? liveInstances : 1));
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            String leaseKey = LEASE_KEY_PREFIX + shard;
+            boolean owned = ownedShards.contains(shard);
+
+            if (owned && ownedShards.size() > maxShards) {
+                redisTemplate.execute(releaseLeaseScript, List.of(leaseKey), instanceId);
+                ownedShards.remove(shard);
+                continue;
+            }
+            if (!owned && ownedShards.size() >= maxShards) {
+                continue;
+            }
+
+            Long acquired = redisTemplate.execute(acquireLeaseScript, List.of(leaseKey), instanceId,
+                    String.valueOf(leaseMillis));
+            if (acquired != null && acquired == 1) {
+                if (ownedShards.add(shard)) {
+                    log.info("EXPIRY: Instance {} acquired shard {}", instanceId, shard);
+                }
+            } else {
+                ownedShards.remove(shard);
+            }
+        }
+    }
+
+    private void processShard(int shard) {
+        // Trả lại các lock đã bị claim quá lâu (replica trước đó chết khi đang xử lý)
+        long requeued = deadlineTracker.requeueStale(shard, System.currentTimeMillis() - processingTimeoutMillis);
+        if (requeued > 0) {
+            log.warn("EXPIRY: Requeued {} stale in-flight locks on shard {}", requeued, shard);
+        }
+
+        List<SeatLockDeadlineTracker.ExpiredLock> claimed;
+        do {
+            long now = System.currentTimeMillis();
+            claimed = deadlineTracker.claimExpired(shard, now, batchSize);
+            if (claimed.isEmpty()) {
+                return;
+            }
+
+            // Gộp các lock hết hạn theo suất chiếu để xử lý 1 lần cho mỗi nhóm
+            Map<UUID, List<SeatLockDeadlineTracker.ExpiredLock>> locksByShowtime = new LinkedHashMap<>();
+            Map<UUID, List<UUID>> seatsByShowtime = new LinkedHashMap<>();
+            for (SeatLockDeadlineTracker.ExpiredLock expired : claimed) {
+                seatLockMetrics.recordExpiryLag(now - expired.deadline());
+                UUID[] ids = parseLockKey(expired.lockKey());
+                if (ids == null) {
+                    deadlineTracker.acknowledge(shard, List.of(expired.member()));
+                    continue;
+                }
+                locksByShowtime.computeIfAbsent(ids[0], k -> new ArrayList<>()).add(expired);
+                seatsByShowtime.computeIfAbsent(ids[0], k -> new ArrayList<>()).add(ids[1]);
+            }
+
+            for (Map.Entry<UUID, List<UUID>> group : seatsByShowtime.entrySet()) {
+                List<SeatLockDeadlineTracker.ExpiredLock> locks = locksByShowtime.get(group.getKey());
+                List<String> members = locks.stream().map(SeatLockDeadlineTracker.ExpiredLock::member).toList();
+                try {
+                    seatLockService.handleExpiredLocks(group.getKey(), group.getValue(),
+                            locks.stream().map(SeatLockDeadlineTracker.ExpiredLock::lockId).toList());
+                    deadlineTracker.acknowledge(shard, members);
+                } catch (Exception e) {
+                    log.error("EXPIRY: Error releasing {} expired seats of showtime {}: {}",
+                            members.size(), group.getKey(), e.getMessage());
+                    members.forEach(member -> deadlineTracker.retryLater(shard, member, now + retryDelayMillis));
+                }
+            }
+        } while (claimed.size() >= batchSize);
+    }
+
+    /**
+     * @param lockKey: Key đã hết hạn (e.g., "seat:<showtimeId>:<seatId>")
+     * @return [showtimeId, seatId] hoặc null nếu key không hợp lệ
+     */
+    private UUID[] parseLockKey(String lockKey) {
+        String[] parts = lockKey.split(":");
+        if (parts.length < 3) {
+            log.warn("EXPIRY: Ignoring malformed lock key {}", lockKey);
+            return null;
+        }
+        try {
+            return new UUID[] { UUID.fromString(parts[1]), UUID.fromString(parts[2]) };
+        } catch (IllegalArgumentException e) {
+            log.warn("EXPIRY: Ignoring lock key with invalid UUID {}", lockKey);
+            return null;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.cinehub.showtime.mapper;
 
 import com.cinehub.showtime.client.MovieServiceClient;
+import com.cinehub.showtime.dto.model.MovieScheduleRow;
 import com.cinehub.showtime.dto.response.ShowtimeDetailResponse;
 import com.cinehub.showtime.dto.response.ShowtimeResponse;
 import com.cinehub.showtime.dto.response.TheaterShowtimesResponse;
@@ -10,6 +11,14 @@ import com.cinehub.showtime.repository.ShowtimeSeatRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
 @Component
 @RequiredArgsConstructor
 public class ShowtimeMapper {
@@ -33,11 +42,59 @@ public class ShowtimeMapper {
                 .build();
     }
 
+    public ShowtimeResponse toShowtimeResponse(MovieScheduleRow row) {
+        return ShowtimeResponse.builder()
+                .id(row.showtimeId())
+                .movieId(row.movieId())
+                .theaterName(row.theaterName())
+                .theaterNameEn(row.theaterNameEn())
+                .roomId(row.roomId())
+                .roomName(row.roomName())
+                .roomNameEn(row.roomNameEn())
+                .startTime(row.startTime())
+                .endTime(row.endTime())
+                .status(row.status() != null ? row.status().name() : "ACTIVE")
+                .build();
+    }
+
     public ShowtimeDetailResponse toShowtimeDetailResponse(Showtime showtime) {
         int totalSeats = seatRepository.countByRoomId(showtime.getRoom().getId());
         long bookedSeats = showtimeSeatRepository.countBookedSeatsByShowtimeId(showtime.getId());
         String movieTitle = movieServiceClient.getMovieTitle(showtime.getMovieId());
+        return toShowtimeDetailResponse(showtime, totalSeats, bookedSeats, movieTitle);
+    }
 
+    /**
+     * Map cả danh sách: đếm ghế theo phòng, ghế đã đặt theo suất chiếu bằng 1 truy vấn mỗi loại
+     * và chỉ gọi movie-service 1 lần cho mỗi phim, thay vì 3 lần gọi cho mỗi suất chiếu.
+     */
+    public List<ShowtimeDetailResponse> toShowtimeDetailResponses(List<Showtime> showtimes) {
+        if (showtimes.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> roomIds = new HashSet<>();
+        List<UUID> showtimeIds = new ArrayList<>(showtimes.size());
+        for (Showtime showtime : showtimes) {
+            roomIds.add(showtime.getRoom().getId());
+            showtimeIds.add(showtime.getId());
+        }
+        Map<UUID, Long> seatCounts = toCountMap(seatRepository.countByRoomIds(roomIds));
+        Map<UUID, Long> bookedCounts = toCountMap(showtimeSeatRepository.countBookedSeatsByShowtimeIds(showtimeIds));
+        Map<UUID, String> movieTitles = new HashMap<>();
+
+        List<ShowtimeDetailResponse> responses = new ArrayList<>(showtimes.size());
+        for (Showtime showtime : showtimes) {
+            String movieTitle = movieTitles.computeIfAbsent(showtime.getMovieId(), movieServiceClient::getMovieTitle);
+            responses.add(toShowtimeDetailResponse(showtime,
+                    seatCounts.getOrDefault(showtime.getRoom().getId(), 0L).intValue(),
+                    bookedCounts.getOrDefault(showtime.getId(), 0L),
+                    movieTitle));
+        }
+        return responses;
+    }
+
+    private ShowtimeDetailResponse toShowtimeDetailResponse(Showtime showtime, int totalSeats, long bookedSeats,
+            String movieTitle) {
         return ShowtimeDetailResponse.builder()
                 .id(showtime.getId())
                 .movieId(showtime.getMovieId())
@@ -69,4 +126,12 @@ public class ShowtimeMapper {
                 .endTime(showtime.getEndTime())
                 .build();
     }
-}
\ No newline at end of file
+
+    private static Map<UUID, Long> toCountMap(List<Object[]> rows) {
+        Map<UUID, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((UUID) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+}
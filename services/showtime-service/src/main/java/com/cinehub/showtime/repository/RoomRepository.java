@@ -1,13 +1,18 @@
 package com.cinehub.showtime.repository;
 
 import com.cinehub.showtime.entity.Room;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface RoomRepository extends JpaRepository<Room, UUID> {
     List<Room> findByTheaterId(UUID theaterId);
+
+    @EntityGraph(attributePaths = "theater")
+    List<Room> findByTheaterIdIn(Collection<UUID> theaterIds);
 }
@@ -2,8 +2,11 @@ package com.cinehub.showtime.repository;
 
 import com.cinehub.showtime.entity.Seat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -12,4 +15,8 @@ public interface SeatRepository extends JpaRepository<Seat, UUID> {
     List<Seat> findByRoomId(UUID roomId);
 
     int countByRoomId(UUID roomId);
+
+    // Số ghế của nhiều phòng trong 1 truy vấn: mỗi dòng là [roomId, count]
+    @Query("SELECT s.room.id, COUNT(s) FROM Seat s WHERE s.room.id IN :roomIds GROUP BY s.room.id")
+    List<Object[]> countByRoomIds(@Param("roomIds") Collection<UUID> roomIds);
 }
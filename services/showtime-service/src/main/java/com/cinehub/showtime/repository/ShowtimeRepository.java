@@ -1,25 +1,58 @@
 package com.cinehub.showtime.repository;
 
+import com.cinehub.showtime.dto.model.MovieScheduleRow;
 import com.cinehub.showtime.entity.Showtime;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ShowtimeRepository extends JpaRepository<Showtime, UUID> {
+
+    // Các truy vấn danh sách dùng để map ra response (cần tên rạp/phòng) đều load theater và room
+    // trong cùng câu SELECT để tránh 1 truy vấn cho mỗi phòng (N+1)
+    @Override
+    @EntityGraph(attributePaths = { "theater", "room" })
+    List<Showtime> findAll();
+
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByTheaterIdAndStartTimeBetween(
             UUID theaterId, LocalDateTime start, LocalDateTime end);
 
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByMovieId(UUID movieId);
 
+    // Lịch chiếu của phim trong [from, to), sắp theo rạp rồi giờ chiếu để gom nhóm trong 1 lượt
+    @Query("""
+            SELECT new com.cinehub.showtime.dto.model.MovieScheduleRow(
+                s.id, s.movieId, t.id, t.name, t.nameEn, t.address,
+                r.id, r.name, r.nameEn, s.startTime, s.endTime, s.status)
+            FROM Showtime s
+            JOIN s.theater t
+            JOIN s.room r
+            WHERE s.movieId = :movieId
+            AND s.startTime >= :from
+            AND s.startTime < :to
+            ORDER BY t.name, t.id, s.startTime
+            """)
+    Stream<MovieScheduleRow> streamMovieSchedule(
+            @Param("movieId") UUID movieId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
     // Tìm showtimes overlap: endTime > newStart AND startTime < newEnd
     @Query("""
             SELECT s FROM Showtime s
+            JOIN FETCH s.theater
+            JOIN FETCH s.room
             WHERE s.room.id = :roomId
             AND s.endTime > :newStart
             AND s.startTime < :newEnd
@@ -29,22 +62,38 @@ public interface ShowtimeRepository extends JpaRepository<Showtime, UUID> {
             @Param("newStart") LocalDateTime newStart,
             @Param("newEnd") LocalDateTime newEnd);
 
+    // Lịch bận của nhiều phòng trong 1 truy vấn (tạo suất chiếu theo lô): mỗi dòng là [roomId, startTime, endTime]
+    @Query("""
+            SELECT s.room.id, s.startTime, s.endTime FROM Showtime s
+            WHERE s.room.id IN :roomIds
+            AND s.endTime > :start
+            AND s.startTime < :end
+            """)
+    List<Object[]> findRoomSchedules(
+            @Param("roomIds") Collection<UUID> roomIds,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
     // Tìm showtimes trong khoảng thời gian (dùng cho calculateFreeSlots)
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByRoomIdAndEndTimeAfterAndStartTimeBefore(
             UUID roomId, LocalDateTime startTime, LocalDateTime endTime);
 
     @Query("""
             SELECT s FROM Showtime s
+            JOIN FETCH s.theater t
+            JOIN FETCH s.room
             WHERE s.movieId = :movieId
-            AND s.theater.province.id = :provinceId
+            AND t.province.id = :provinceId
             AND s.startTime >= :now
-            ORDER BY s.theater.name, s.startTime
+            ORDER BY t.name, s.startTime
             """)
     List<Showtime> findByMovieAndProvince(
             @Param("movieId") UUID movieId,
             @Param("provinceId") UUID provinceId,
             @Param("now") LocalDateTime now);
 
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByMovieIdAndStatusAndStartTimeAfter(
             UUID movieId,
             com.cinehub.showtime.entity.ShowtimeStatus status,
@@ -52,6 +101,8 @@ public interface ShowtimeRepository extends JpaRepository<Showtime, UUID> {
 
     @Query("""
             SELECT s FROM Showtime s
+            JOIN FETCH s.theater
+            JOIN FETCH s.room
             WHERE s.theater.id = :theaterId
             AND s.startTime >= :now
             ORDER BY s.movieId, s.startTime
@@ -61,28 +112,34 @@ public interface ShowtimeRepository extends JpaRepository<Showtime, UUID> {
             @Param("now") LocalDateTime now);
 
     @Query("""
-                SELECT s FROM Showtime s
+                SELECT s.id FROM Showtime s
                 WHERE s.startTime >= :start AND s.endTime <= :end
                 AND NOT EXISTS (
                     SELECT ss FROM ShowtimeSeat ss
                     WHERE ss.showtime.id = s.id
                 )
             """)
-    List<Showtime> findShowtimesWithoutSeats(
+    List<UUID> findShowtimeIdsWithoutSeats(
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
 
+    @Query("SELECT s.id FROM Showtime s WHERE s.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByMovieIdAndTheaterIdAndStartTimeBetween(
             UUID movieId,
             UUID theaterId,
             LocalDateTime start,
             LocalDateTime end);
 
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByMovieIdAndStartTimeBetween(
             UUID movieId,
             LocalDateTime start,
             LocalDateTime end);
 
+    @EntityGraph(attributePaths = { "theater", "room" })
     List<Showtime> findByStartTimeBetween(
             LocalDateTime start,
             LocalDateTime end);
@@ -1,5 +1,6 @@
 package com.cinehub.showtime.repository;
 
+import com.cinehub.showtime.dto.model.ShowtimeCursor;
 import com.cinehub.showtime.entity.Showtime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -7,6 +8,7 @@ import org.springframework.data.domain.Pageable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.UUID;
 
 public interface ShowtimeRepositoryCustom {
@@ -22,4 +24,54 @@ public interface ShowtimeRepositoryCustom {
             LocalTime toTime,
             LocalDateTime now,
             Pageable pageable);
+
+    /**
+     * Nội dung 1 trang OFFSET, không kèm COUNT (đếm riêng bằng {@link #countAvailableShowtimes}).
+     */
+    List<Showtime> findAvailableShowtimesPage(
+            UUID provinceId,
+            UUID theaterId,
+            UUID roomId,
+            UUID movieId,
+            UUID showtimeId,
+            LocalDateTime startOfDay,
+            LocalDateTime endOfDay,
+            LocalTime fromTime,
+            LocalTime toTime,
+            LocalDateTime now,
+            Pageable pageable);
+
+    /**
+     * Phân trang keyset theo (startTime, id): lấy tối đa limit suất chiếu đứng sau after
+     * (after = null là trang đầu). Chi phí không phụ thuộc trang sâu bao nhiêu.
+     */
+    List<Showtime> findAvailableShowtimesAfter(
+            UUID provinceId,
+            UUID theaterId,
+            UUID roomId,
+            UUID movieId,
+            UUID showtimeId,
+            LocalDateTime startOfDay,
+            LocalDateTime endOfDay,
+            LocalTime fromTime,
+            LocalTime toTime,
+            LocalDateTime now,
+            ShowtimeCursor after,
+            int limit);
+
+    /**
+     * Đếm suất chiếu khớp bộ lọc, dừng ở cap (cap = null là đếm chính xác).
+     */
+    long countAvailableShowtimes(
+            UUID provinceId,
+            UUID theaterId,
+            UUID roomId,
+            UUID movieId,
+            UUID showtimeId,
+            LocalDateTime startOfDay,
+            LocalDateTime endOfDay,
+            LocalTime fromTime,
+            LocalTime toTime,
+            LocalDateTime now,
+            Integer cap);
 }
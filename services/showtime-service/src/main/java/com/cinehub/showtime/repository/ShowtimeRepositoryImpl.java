@@ -1,5 +1,6 @@
 package com.cinehub.showtime.repository;
 
+import com.cinehub.showtime.dto.model.ShowtimeCursor;
 import com.cinehub.showtime.entity.Showtime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -35,13 +36,35 @@ public class ShowtimeRepositoryImpl implements ShowtimeRepositoryCustom {
             LocalDateTime now,
             Pageable pageable) {
 
-        CriteriaBuilder cb = em.getCriteriaBuilder();
+        List<Showtime> content = findAvailableShowtimesPage(provinceId, theaterId, roomId, movieId, showtimeId,
+                startOfDay, endOfDay, fromTime, toTime, now, pageable);
+        long total = countAvailableShowtimes(provinceId, theaterId, roomId, movieId, showtimeId,
+                startOfDay, endOfDay, fromTime, toTime, now, null);
+
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public List<Showtime> findAvailableShowtimesPage(
+            UUID provinceId,
+            UUID theaterId,
+            UUID roomId,
+            UUID movieId,
+            UUID showtimeId,
+            LocalDateTime startOfDay,
+            LocalDateTime endOfDay,
+            LocalTime fromTime,
+            LocalTime toTime,
+            LocalDateTime now,
+            Pageable pageable) {
 
-        // --- 1. Fetch Content Query ---
+        CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Showtime> cq = cb.createQuery(Showtime.class);
         Root<Showtime> root = cq.from(Showtime.class);
+        // Load rạp (kèm tỉnh) và phòng trong cùng câu SELECT, tránh N+1 khi map ShowtimeDetailResponse
+        root.fetch("theater", JoinType.INNER).fetch("province", JoinType.INNER);
+        root.fetch("room", JoinType.INNER);
 
-        // Build predicates reuse logic
         List<Predicate> predicates = buildPredicates(cb, root, provinceId, theaterId, roomId, movieId, showtimeId,
                 startOfDay, endOfDay, fromTime, toTime, now);
 
@@ -52,24 +75,87 @@ public class ShowtimeRepositoryImpl implements ShowtimeRepositoryCustom {
             cq.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
         }
 
-        List<Showtime> content = em.createQuery(cq)
+        return em.createQuery(cq)
                 .setFirstResult((int) pageable.getOffset())
                 .setMaxResults(pageable.getPageSize())
                 .getResultList();
+    }
+
+    @Override
+    public List<Showtime> findAvailableShowtimesAfter(
+            UUID provinceId,
+            UUID theaterId,
+            UUID roomId,
+            UUID movieId,
+            UUID showtimeId,
+            LocalDateTime startOfDay,
+            LocalDateTime endOfDay,
+            LocalTime fromTime,
+            LocalTime toTime,
+            LocalDateTime now,
+            ShowtimeCursor after,
+            int limit) {
 
-        // --- 2. Count Query ---
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<Showtime> countRoot = countQuery.from(Showtime.class);
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Showtime> cq = cb.createQuery(Showtime.class);
+        Root<Showtime> root = cq.from(Showtime.class);
+        root.fetch("theater", JoinType.INNER).fetch("province", JoinType.INNER);
+        root.fetch("room", JoinType.INNER);
 
-        // Tái sử dụng hàm buildPredicates cho count query
-        List<Predicate> countPredicates = buildPredicates(cb, countRoot, provinceId, theaterId, roomId, movieId,
-                showtimeId,
+        List<Predicate> predicates = buildPredicates(cb, root, provinceId, theaterId, roomId, movieId, showtimeId,
                 startOfDay, endOfDay, fromTime, toTime, now);
 
-        countQuery.select(cb.count(countRoot)).where(countPredicates.toArray(new Predicate[0]));
-        long total = em.createQuery(countQuery).getSingleResult();
+        // Seek: (startTime, id) > (after.startTime, after.id), dùng index (start_time, id) thay vì OFFSET
+        if (after != null) {
+            predicates.add(cb.or(
+                    cb.greaterThan(root.get("startTime"), after.startTime()),
+                    cb.and(
+                            cb.equal(root.get("startTime"), after.startTime()),
+                            cb.greaterThan(root.<UUID>get("id"), after.id()))));
+        }
+
+        cq.where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(root.get("startTime")), cb.asc(root.get("id")));
 
-        return new PageImpl<>(content, pageable, total);
+        return em.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countAvailableShowtimes(
+            UUID provinceId,
+            UUID theaterId,
+            UUID roomId,
+            UUID movieId,
+            UUID showtimeId,
+            LocalDateTime startOfDay,
+            LocalDateTime endOfDay,
+            LocalTime fromTime,
+            LocalTime toTime,
+            LocalDateTime now,
+            Integer cap) {
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        if (cap == null) {
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            Root<Showtime> countRoot = countQuery.from(Showtime.class);
+            List<Predicate> predicates = buildPredicates(cb, countRoot, provinceId, theaterId, roomId, movieId,
+                    showtimeId, startOfDay, endOfDay, fromTime, toTime, now);
+            countQuery.select(cb.count(countRoot)).where(predicates.toArray(new Predicate[0]));
+            return em.createQuery(countQuery).getSingleResult();
+        }
+
+        // Đếm có giới hạn: chỉ đọc tối đa cap id, chi phí không tăng theo số bản ghi
+        CriteriaQuery<UUID> idQuery = cb.createQuery(UUID.class);
+        Root<Showtime> idRoot = idQuery.from(Showtime.class);
+        List<Predicate> predicates = buildPredicates(cb, idRoot, provinceId, theaterId, roomId, movieId,
+                showtimeId, startOfDay, endOfDay, fromTime, toTime, now);
+        idQuery.select(idRoot.get("id")).where(predicates.toArray(new Predicate[0]));
+        return em.createQuery(idQuery)
+                .setMaxResults(cap)
+                .getResultList()
+                .size();
     }
 
     /**
@@ -115,34 +201,15 @@ public class ShowtimeRepositoryImpl implements ShowtimeRepositoryCustom {
         }
 
         // Lọc theo thời gian trong ngày (fromTime, toTime)
-        // Dùng PostgreSQL EXTRACT với format string
+        // So sánh trực tiếp cột start_minute_of_day (generated column có index) để Postgres range scan
         if (fromTime != null) {
             int fromMinutes = fromTime.getHour() * 60 + fromTime.getMinute();
-
-            // EXTRACT(HOUR FROM startTime) * 60 + EXTRACT(MINUTE FROM startTime)
-            Expression<Integer> hourExpr = cb.function("date_part", Integer.class,
-                    cb.literal("hour"), root.get("startTime"));
-            Expression<Integer> minuteExpr = cb.function("date_part", Integer.class,
-                    cb.literal("minute"), root.get("startTime"));
-            Expression<Integer> totalMinutes = cb.sum(
-                    cb.prod(hourExpr, 60),
-                    minuteExpr);
-
-            predicates.add(cb.greaterThanOrEqualTo(totalMinutes, fromMinutes));
+            predicates.add(cb.greaterThanOrEqualTo(root.get("startMinuteOfDay"), fromMinutes));
         }
 
         if (toTime != null) {
             int toMinutes = toTime.getHour() * 60 + toTime.getMinute();
-
-            Expression<Integer> hourExpr = cb.function("date_part", Integer.class,
-                    cb.literal("hour"), root.get("startTime"));
-            Expression<Integer> minuteExpr = cb.function("date_part", Integer.class,
-                    cb.literal("minute"), root.get("startTime"));
-            Expression<Integer> totalMinutes = cb.sum(
-                    cb.prod(hourExpr, 60),
-                    minuteExpr);
-
-            predicates.add(cb.lessThanOrEqualTo(totalMinutes, toMinutes));
+            predicates.add(cb.lessThanOrEqualTo(root.get("startMinuteOfDay"), toMinutes));
         }
 
         return predicates;
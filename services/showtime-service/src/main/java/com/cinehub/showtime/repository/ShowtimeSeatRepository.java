@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -75,6 +76,27 @@ public interface ShowtimeSeatRepository extends JpaRepository<ShowtimeSeat, UUID
             @Param("status") ShowtimeSeat.SeatStatus status,
             @Param("now") LocalDateTime now);
 
+    /**
+     * Cập nhật trạng thái tạm thời (LOCKED/AVAILABLE) từ write-behind flusher.
+     * Không ghi đè ghế đã BOOKED vì trạng thái BOOKED luôn được ghi đồng bộ.
+     * now là thời điểm chuyển trạng thái: bỏ qua dòng đã được ghi bởi chuyển trạng thái mới hơn
+     * (vd. LOCKED flush muộn từ instance khác sau khi ghế đã AVAILABLE).
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("""
+                UPDATE ShowtimeSeat s
+                SET s.status = :status, s.updatedAt = :now
+                WHERE s.showtime.id = :showtimeId
+                AND s.seat.id IN :seatIds
+                AND s.status <> com.cinehub.showtime.entity.ShowtimeSeat.SeatStatus.BOOKED
+                AND (s.updatedAt IS NULL OR s.updatedAt <= :now)
+            """)
+    int bulkUpdateTransientSeatStatus(@Param("showtimeId") UUID showtimeId,
+            @Param("seatIds") List<UUID> seatIds,
+            @Param("status") ShowtimeSeat.SeatStatus status,
+            @Param("now") LocalDateTime now);
+
     /**
      * Count booked seats for a showtime
      */
@@ -82,8 +104,40 @@ public interface ShowtimeSeatRepository extends JpaRepository<ShowtimeSeat, UUID
                 SELECT COUNT(s)
                 FROM ShowtimeSeat s
                 WHERE s.showtime.id = :showtimeId
-                AND s.status IN ('BOOKED', 'RESERVED')
+                AND s.status = com.cinehub.showtime.entity.ShowtimeSeat.SeatStatus.BOOKED
             """)
     long countBookedSeatsByShowtimeId(@Param("showtimeId") UUID showtimeId);
 
-}
\ No newline at end of file
+    /**
+     * Count booked seats for many showtimes: each row is [showtimeId, count]
+     */
+    @Query("""
+                SELECT s.showtime.id, COUNT(s)
+                FROM ShowtimeSeat s
+                WHERE s.showtime.id IN :showtimeIds
+                AND s.status = com.cinehub.showtime.entity.ShowtimeSeat.SeatStatus.BOOKED
+                GROUP BY s.showtime.id
+            """)
+    List<Object[]> countBookedSeatsByShowtimeIds(@Param("showtimeIds") Collection<UUID> showtimeIds);
+
+    /**
+     * Tạo ghế suất chiếu (AVAILABLE) cho nhiều suất chiếu bằng 1 câu INSERT ... SELECT từ bảng seat theo phòng.
+     * Suất chiếu đã có ghế được bỏ qua. Trả về số dòng đã ghi.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+                INSERT INTO showtime_seat (id, showtime_id, seat_id, status, updated_at)
+                SELECT gen_random_uuid(), st.id, seat.id, 'AVAILABLE', :now
+                FROM showtime st
+                JOIN seat ON seat.room_id = st.room_id
+                WHERE st.id IN (:showtimeIds)
+                AND NOT EXISTS (
+                    SELECT 1 FROM showtime_seat ss
+                    WHERE ss.showtime_id = st.id
+                )
+            """, nativeQuery = true)
+    int insertSeatsForShowtimes(@Param("showtimeIds") Collection<UUID> showtimeIds,
+            @Param("now") LocalDateTime now);
+
+}
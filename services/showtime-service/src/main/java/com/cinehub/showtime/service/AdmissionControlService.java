@@ -0,0 +1,303 @@
+package com.cinehub.showtime.service;
+
+import com.cinehub.showtime.dto.model.SeatLockRecord;
+import com.cinehub.showtime.dto.response.AdmissionResponse;
+import com.cinehub.showtime.exception.AdmissionRequiredException;
+import com.cinehub.showtime.websocket.SeatLockWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Phòng chờ ảo cho các suất chiếu hot. Khi bật cho 1 suất chiếu, chỉ tối đa maxActive phiên
+ * được giữ lượt chọn ghế cùng lúc, các phiên còn lại xếp hàng và nhận vị trí qua WebSocket.
+ * - admission:{showtimeId}:config: hash maxActive (tồn tại = đang bật phòng chờ)
+ * - admission:{showtimeId}:active: zset owner -> thời điểm hết hạn lượt (ms)
+ * - admission:{showtimeId}:queue: zset owner -> số thứ tự vào hàng
+ * - admission:{showtimeId}:seen: zset owner -> lần cuối client còn hoạt động (ms)
+ * Owner là "USER:{userId}" hoặc "GUEST:{guestSessionId}", giống chủ sở hữu khóa ghế.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AdmissionControlService {
+
+    private static final String KEY_PREFIX = "admission:";
+    private static final String SHOWTIMES_KEY = "admission:showtimes";
+
+    private final StringRedisTemplate redisTemplate;
+    private final SeatLockWebSocketHandler webSocketHandler;
+
+    @Value("${admission.max-active:200}")
+    private int defaultMaxActive;
+
+    @Value("${admission.pass-ttl-ms:600000}")
+    private long passTtlMillis;
+
+    @Value("${admission.wait-timeout-ms:30000}")
+    private long waitTimeoutMillis;
+
+    /**
+     * Vào hàng chờ hoặc nhận lượt ngay nếu còn chỗ.
+     * KEYS: config, active, queue, seen, seq. ARGV[1]: owner, ARGV[2]: now (ms), ARGV[3]: pass TTL (ms).
+     * Trả về {admitted (0/1), passExpiresAt, position}; passExpiresAt = 0 nếu phòng chờ không bật.
+     */
+    private static final String JOIN_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return {1, 0, 0}
+            end
+            local now = tonumber(ARGV[2])
+            redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now)
+            local pass = redis.call('ZSCORE', KEYS[2], ARGV[1])
+            if pass then
+                return {1, tonumber(pass), 0}
+            end
+            if not redis.call('ZSCORE', KEYS[3], ARGV[1]) then
+                redis.call('ZADD', KEYS[3], redis.call('INCR', KEYS[5]), ARGV[1])
+            end
+            redis.call('ZADD', KEYS[4], now, ARGV[1])
+            local free = math.max(0, tonumber(redis.call('HGET', KEYS[1], 'maxActive')) - redis.call('ZCARD', KEYS[2]))
+            local rank = redis.call('ZRANK', KEYS[3], ARGV[1])
+            if rank < free then
+                local expireAt = now + tonumber(ARGV[3])
+                redis.call('ZREM', KEYS[3], ARGV[1])
+                redis.call('ZREM', KEYS[4], ARGV[1])
+                redis.call('ZADD', KEYS[2], expireAt, ARGV[1])
+                return {1, expireAt, 0}
+            end
+            return {0, 0, rank - free + 1}
+            """;
+
+    /**
+     * Bỏ lượt đã hết hạn, loại phiên chờ không còn hoạt động và cấp lượt cho các phiên đầu hàng.
+     * KEYS: config, active, queue, seen. ARGV[1]: now (ms), ARGV[2]: pass TTL (ms), ARGV[3]: stale trước (ms).
+     * Trả về số phiên vừa được cấp lượt, -1 nếu phòng chờ đã tắt.
+     */
+    private static final String PROMOTE_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -1
+            end
+            local now = tonumber(ARGV[1])
+            redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now)
+            local stale = redis.call('ZRANGEBYSCORE', KEYS[4], '-inf', ARGV[3])
+            for i = 1, #stale do
+                redis.call('ZREM', KEYS[3], stale[i])
+                redis.call('ZREM', KEYS[4], stale[i])
+            end
+            local free = tonumber(redis.call('HGET', KEYS[1], 'maxActive')) - redis.call('ZCARD', KEYS[2])
+            if free <= 0 then
+                return 0
+            end
+            local admitted = redis.call('ZRANGE', KEYS[3], 0, free - 1)
+            for i = 1, #admitted do
+                redis.call('ZREM', KEYS[3], admitted[i])
+                redis.call('ZREM', KEYS[4], admitted[i])
+                redis.call('ZADD', KEYS[2], now + tonumber(ARGV[2]), admitted[i])
+            end
+            return #admitted
+            """;
+
+    /**
+     * KEYS: config, active. ARGV[1]: owner, ARGV[2]: now (ms). Trả về 1 nếu được phép chọn ghế.
+     */
+    private static final String CHECK_PASS_SCRIPT = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 1
+            end
+            local pass = redis.call('ZSCORE', KEYS[2], ARGV[1])
+            if pass and tonumber(pass) > tonumber(ARGV[2]) then
+                return 1
+            end
+            return 0
+            """;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> joinScript = new DefaultRedisScript<>(JOIN_SCRIPT, List.class);
+
+    private final DefaultRedisScript<Long> promoteScript = new DefaultRedisScript<>(PROMOTE_SCRIPT, Long.class);
+
+    private final DefaultRedisScript<Long> checkPassScript = new DefaultRedisScript<>(CHECK_PASS_SCRIPT,
+            Long.class);
+
+    public void enable(UUID showtimeId, Integer maxActive) {
+        int limit = maxActive != null && maxActive > 0 ? maxActive : defaultMaxActive;
+        redisTemplate.opsForHash().put(configKey(showtimeId), "maxActive", String.valueOf(limit));
+        redisTemplate.opsForSet().add(SHOWTIMES_KEY, showtimeId.toString());
+        log.info("ADMISSION: Waiting room enabled for showtime {} (maxActive={})", showtimeId, limit);
+    }
+
+    public void disable(UUID showtimeId) {
+        redisTemplate.delete(List.of(configKey(showtimeId), activeKey(showtimeId), queueKey(showtimeId),
+                seenKey(showtimeId), seqKey(showtimeId)));
+        redisTemplate.opsForSet().remove(SHOWTIMES_KEY, showtimeId.toString());
+        log.info("ADMISSION: Waiting room disabled for showtime {}", showtimeId);
+    }
+
+    public AdmissionResponse join(UUID showtimeId, UUID userId, UUID guestSessionId) {
+        String owner = owner(userId, guestSessionId);
+
+        @SuppressWarnings("unchecked")
+        List<Long> result = redisTemplate.execute(joinScript, keys(showtimeId), owner,
+                String.valueOf(System.currentTimeMillis()), String.valueOf(passTtlMillis));
+
+        if (result == null || result.get(0) == 1L) {
+            long passExpiresAt = result != null ? result.get(1) : 0;
+            return buildResponse(showtimeId, passExpiresAt == 0 ? "OPEN" : "ADMITTED", 0, passExpiresAt);
+        }
+        return buildResponse(showtimeId, "WAITING", result.get(2), 0);
+    }
+
+    public void leave(UUID showtimeId, UUID userId, UUID guestSessionId) {
+        String owner = owner(userId, guestSessionId);
+        redisTemplate.opsForZSet().remove(activeKey(showtimeId), owner);
+        redisTemplate.opsForZSet().remove(queueKey(showtimeId), owner);
+        redisTemplate.opsForZSet().remove(seenKey(showtimeId), owner);
+    }
+
+    /**
+     * Chặn chọn ghế nếu suất chiếu đang bật phòng chờ mà phiên chưa có lượt (1 lần gọi Redis).
+     */
+    public void requirePass(UUID showtimeId, UUID userId, UUID guestSessionId) {
+        Long allowed = redisTemplate.execute(checkPassScript,
+                List.of(configKey(showtimeId), activeKey(showtimeId)),
+                owner(userId, guestSessionId), String.valueOf(System.currentTimeMillis()));
+
+        if (allowed == null || allowed != 1L) {
+            throw new AdmissionRequiredException(
+                    "Showtime " + showtimeId + " is in waiting room mode. Join the queue before selecting seats.");
+        }
+    }
+
+    /**
+     * Cấp lượt cho hàng chờ và đẩy trạng thái tới các client WebSocket đang kết nối vào replica này.
+     * Script promote là atomic nên chạy đồng thời trên nhiều replica vẫn an toàn.
+     */
+    @Scheduled(fixedDelayString = "${admission.promote-interval-ms:1000}")
+    public void promoteWaiting() {
+        Set<String> showtimes = redisTemplate.opsForSet().members(SHOWTIMES_KEY);
+        if (showtimes == null || showtimes.isEmpty()) {
+            return;
+        }
+
+        for (String id : showtimes) {
+            UUID showtimeId = UUID.fromString(id);
+            try {
+                long now = System.currentTimeMillis();
+                Long admitted = redisTemplate.execute(promoteScript, keys(showtimeId).subList(0, 4),
+                        String.valueOf(now), String.valueOf(passTtlMillis),
+                        String.valueOf(now - waitTimeoutMillis));
+
+                if (admitted != null && admitted < 0) {
+                    redisTemplate.opsForSet().remove(SHOWTIMES_KEY, id);
+                    continue;
+                }
+                pushLocalStatus(showtimeId, now);
+            } catch (Exception e) {
+                log.error("ADMISSION: Failed to promote waiting room of showtime {}: {}", showtimeId,
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Đọc trạng thái của các owner đang kết nối WebSocket trong 1 pipeline và gửi cho từng client.
+     * Client còn kết nối được xem là còn hoạt động nên cập nhật luôn "seen".
+     */
+    private void pushLocalStatus(UUID showtimeId, long now) {
+        List<String> owners = new ArrayList<>(webSocketHandler.getConnectedOwners(showtimeId));
+        if (owners.isEmpty()) {
+            return;
+        }
+
+        String activeKey = activeKey(showtimeId);
+        String queueKey = queueKey(showtimeId);
+        String seenKey = seenKey(showtimeId);
+
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (String owner : owners) {
+                    ops.opsForZSet().score(activeKey, owner);
+                    ops.opsForZSet().rank(queueKey, owner);
+                }
+                return null;
+            }
+        });
+
+        Set<ZSetOperations.TypedTuple<String>> waiting = new HashSet<>();
+        for (int i = 0; i < owners.size(); i++) {
+            Double pass = (Double) results.get(i * 2);
+            Long rank = (Long) results.get(i * 2 + 1);
+
+            AdmissionResponse status;
+            if (pass != null) {
+                status = buildResponse(showtimeId, "ADMITTED", 0, pass.longValue());
+            } else if (rank != null) {
+                status = buildResponse(showtimeId, "WAITING", rank + 1, 0);
+                waiting.add(ZSetOperations.TypedTuple.of(owners.get(i), (double) now));
+            } else {
+                continue;
+            }
+            webSocketHandler.sendToOwner(showtimeId, owners.get(i), status);
+        }
+
+        if (!waiting.isEmpty()) {
+            redisTemplate.opsForZSet().add(seenKey, waiting);
+        }
+    }
+
+    private AdmissionResponse buildResponse(UUID showtimeId, String status, long position, long passExpiresAt) {
+        return AdmissionResponse.builder()
+                .showtimeId(showtimeId)
+                .status(status)
+                .position(position)
+                .passExpiresAt(passExpiresAt)
+                .build();
+    }
+
+    public static String owner(UUID userId, UUID guestSessionId) {
+        String[] owner = SeatLockRecord.owner(userId, guestSessionId);
+        return owner[0] + ":" + owner[1];
+    }
+
+    private List<String> keys(UUID showtimeId) {
+        return List.of(configKey(showtimeId), activeKey(showtimeId), queueKey(showtimeId), seenKey(showtimeId),
+                seqKey(showtimeId));
+    }
+
+    private String configKey(UUID showtimeId) {
+        return KEY_PREFIX + showtimeId + ":config";
+    }
+
+    private String activeKey(UUID showtimeId) {
+        return KEY_PREFIX + showtimeId + ":active";
+    }
+
+    private String queueKey(UUID showtimeId) {
+        return KEY_PREFIX + showtimeId + ":queue";
+    }
+
+    private String seenKey(UUID showtimeId) {
+        return KEY_PREFIX + showtimeId + ":seen";
+    }
+
+    private String seqKey(UUID showtimeId) {
+        return KEY_PREFIX + showtimeId + ":seq";
+    }
+}
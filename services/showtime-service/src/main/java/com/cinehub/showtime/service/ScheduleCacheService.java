@@ -0,0 +1,188 @@
+package com.cinehub.showtime.service;
+
+import com.cinehub.showtime.entity.Showtime;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache trong bộ nhớ cho các API lịch chiếu công khai.
+ * - Mỗi entry ghi lại phim / tỉnh / rạp / khoảng ngày mà nó phụ thuộc
+ * - Khi suất chiếu thay đổi, chỉ xóa các entry bị ảnh hưởng, rồi phát thông báo qua Redis
+ *   (kênh schedule-cache:invalidate) để các replica khác cũng xóa
+ * - TTL chỉ là lưới an toàn khi mất thông báo
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduleCacheService {
+
+    public static final String INVALIDATION_CHANNEL = "schedule-cache:invalidate";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${schedule.cache.ttl-ms:600000}")
+    private long ttlMillis;
+
+    @Value("${schedule.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<ScheduleKey, CachedValue> entries = new ConcurrentHashMap<>();
+
+    // Tăng mỗi lần xóa cache: giá trị load trong lúc có thay đổi sẽ không được giữ lại
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Khóa cache. null ở phim / tỉnh / rạp nghĩa là entry chứa mọi giá trị của chiều đó.
+     * Khoảng ngày [from, to) với to = null là không giới hạn.
+     */
+    public record ScheduleKey(String kind, UUID movieId, UUID provinceId, UUID theaterId, LocalDate from,
+            LocalDate to) {
+
+        public static ScheduleKey movieSchedule(UUID movieId, LocalDate from, int days) {
+            return new ScheduleKey("movie-schedule", movieId, null, null, from, from.plusDays(days));
+        }
+
+        public static ScheduleKey movieInProvince(UUID movieId, UUID provinceId, LocalDate from) {
+            return new ScheduleKey("movie-province", movieId, provinceId, null, from, null);
+        }
+
+        public static ScheduleKey theater(UUID theaterId, LocalDate from) {
+            return new ScheduleKey("theater", null, null, theaterId, from, null);
+        }
+
+        public static ScheduleKey date(LocalDate date, UUID movieId, UUID theaterId) {
+            return new ScheduleKey("date", movieId, null, theaterId, date, date.plusDays(1));
+        }
+
+        boolean affectedBy(ScheduleChange change) {
+            return matches(movieId, change.movieId())
+                    && matches(provinceId, change.provinceId())
+                    && matches(theaterId, change.theaterId())
+                    && (change.date() == null
+                            || (!change.date().isBefore(from) && (to == null || change.date().isBefore(to))));
+        }
+
+        private static boolean matches(UUID keyValue, UUID changeValue) {
+            return keyValue == null || changeValue == null || keyValue.equals(changeValue);
+        }
+    }
+
+    /**
+     * Thay đổi của 1 suất chiếu (hoặc 1 nhóm suất chiếu nếu có chiều null).
+     */
+    public record ScheduleChange(UUID movieId, UUID provinceId, UUID theaterId, LocalDate date) {
+
+        public static ScheduleChange of(Showtime showtime) {
+            return new ScheduleChange(showtime.getMovieId(),
+                    showtime.getTheater().getProvince().getId(),
+                    showtime.getTheater().getId(),
+                    showtime.getStartTime().toLocalDate());
+        }
+    }
+
+    private record CachedValue(Object value, long expiresAt) {
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(ScheduleKey key, Supplier<T> loader) {
+        long now = System.currentTimeMillis();
+        CachedValue cached = entries.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return (T) cached.value();
+        }
+
+        long loadGeneration = generation.get();
+        T value = loader.get();
+        if (entries.size() >= maxEntries) {
+            makeRoom(now);
+        }
+        CachedValue loaded = new CachedValue(value, now + ttlMillis);
+        entries.put(key, loaded);
+        // Có thay đổi trong lúc load: giá trị có thể đã cũ, không giữ lại
+        if (generation.get() != loadGeneration) {
+            entries.remove(key, loaded);
+        }
+        return value;
+    }
+
+    /**
+     * Cache đầy: bỏ entry hết hạn, nếu vẫn đầy thì bỏ khoảng 10% entry cũ nhất (expiresAt nhỏ nhất)
+     * thay vì xóa hết, để các request đang đọc không cùng lúc miss và dồn xuống DB.
+     * synchronized: chỉ 1 luồng dọn, các luồng đến sau thấy đã đủ chỗ thì bỏ qua.
+     */
+    private synchronized void makeRoom(long now) {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt()))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+    }
+
+    public void evict(Showtime showtime) {
+        evict(List.of(ScheduleChange.of(showtime)));
+    }
+
+    public void evictShowtimes(Collection<Showtime> showtimes) {
+        List<ScheduleChange> changes = showtimes.stream()
+                .map(ScheduleChange::of)
+                .distinct()
+                .toList();
+        evict(changes);
+    }
+
+    public void evict(Collection<ScheduleChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        evictLocal(changes);
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, objectMapper.writeValueAsString(changes));
+        } catch (Exception e) {
+            log.warn("Failed to publish schedule cache invalidation: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Gọi bởi MessageListenerAdapter khi nhận thông báo xóa cache từ Redis (kể cả từ chính replica này).
+     */
+    public void handleInvalidation(String message) {
+        try {
+            evictLocal(objectMapper.readValue(message, new TypeReference<List<ScheduleChange>>() {
+            }));
+        } catch (Exception e) {
+            log.warn("Invalid schedule cache invalidation {}: {}. Clearing cache.", message, e.getMessage());
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    private void evictLocal(Collection<ScheduleChange> changes) {
+        generation.incrementAndGet();
+        List<ScheduleChange> distinct = changes.stream().distinct().toList();
+        entries.keySet().removeIf(key -> distinct.stream().anyMatch(key::affectedBy));
+    }
+}
@@ -0,0 +1,206 @@
+package com.cinehub.showtime.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Theo dõi thời điểm hết hạn của khóa ghế bằng sorted set trên Redis,
+ * thay cho keyspace notification (không đảm bảo giao nhận).
+ * - seat_lock_deadlines:{shard}: member = "{lock key}#{lockId}", score = expireAt (ms)
+ * - seat_lock_deadlines:{shard}:processing: các lock đã được claim nhưng chưa xử lý xong
+ * Member gắn với từng lần khóa (lockId) chứ không chỉ theo ghế: nếu lock A hết hạn và ghế bị khóa lại
+ * trước khi poller chạy, deadline của A vẫn được xử lý thay vì bị dời theo lock mới.
+ * Member chỉ có lock key (không có "#") là của lock tạo trước khi có lockId, tương ứng lockId rỗng.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatLockDeadlineTracker {
+
+    private static final String DEADLINE_KEY_PREFIX = "seat_lock_deadlines:";
+    private static final String PROCESSING_SUFFIX = ":processing";
+    private static final String MEMBER_SEPARATOR = "#";
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${lock.expiry.shards:16}")
+    private int shardCount;
+
+    /**
+     * Xóa lock và deadline trong cùng 1 lệnh để poller không xử lý nhầm lock đã giải phóng.
+     * KEYS[1]: deadline key, KEYS[2..]: lock keys
+     */
+    private static final String RELEASE_LOCKS_SCRIPT = """
+            local deleted = 0
+            for i = 2, #KEYS do
+                if redis.call('TYPE', KEYS[i]).ok == 'hash' then
+                    local lockId = redis.call('HGET', KEYS[i], 'lockId')
+                    if lockId then
+                        redis.call('ZREM', KEYS[1], KEYS[i] .. '#' .. lockId)
+                    end
+                end
+                redis.call('ZREM', KEYS[1], KEYS[i])
+                deleted = deleted + redis.call('DEL', KEYS[i])
+            end
+            return deleted
+            """;
+
+    /**
+     * Claim các lock đã tới hạn. Lock vẫn là lần khóa đó (cùng lockId) và được gia hạn thì cập nhật lại
+     * deadline; lock đã mất hoặc ghế đã thuộc lần khóa khác thì lần khóa này đã hết hạn:
+     * chuyển sang processing set và trả về.
+     * KEYS[1]: deadline key, KEYS[2]: processing key, ARGV[1]: now (ms), ARGV[2]: limit
+     * Trả về danh sách phẳng [member, deadline (ms), ...].
+     */
+    private static final String CLAIM_EXPIRED_SCRIPT = """
+            local now = tonumber(ARGV[1])
+            local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'WITHSCORES', 'LIMIT', 0, ARGV[2])
+            local claimed = {}
+            for i = 1, #due, 2 do
+                local member = due[i]
+                local key, lockId = string.match(member, '^(.*)#([^#]*)$')
+                if not key then
+                    key = member
+                    lockId = ''
+                end
+                local current = nil
+                local keyType = redis.call('TYPE', key).ok
+                if keyType == 'hash' then
+                    current = redis.call('HGET', key, 'lockId') or ''
+                elseif keyType ~= 'none' then
+                    current = ''
+                end
+                if current == lockId then
+                    local pttl = redis.call('PTTL', key)
+                    if pttl >= 0 then
+                        redis.call('ZADD', KEYS[1], now + pttl, member)
+                    else
+                        redis.call('ZREM', KEYS[1], member)
+                    end
+                else
+                    redis.call('ZREM', KEYS[1], member)
+                    redis.call('ZADD', KEYS[2], now, member)
+                    table.insert(claimed, member)
+                    table.insert(claimed, due[i + 1])
+                end
+            end
+            return claimed
+            """;
+
+    /**
+     * Trả các lock bị claim quá lâu (replica chết giữa chừng) về deadline set.
+     * Ngưỡng là processing timeout chứ không phải lease, để 1 lô xử lý chậm không bị xử lý 2 lần.
+     * KEYS[1]: deadline key, KEYS[2]: processing key, ARGV[1]: claimed trước thời điểm này (ms)
+     */
+    private static final String REQUEUE_STALE_SCRIPT = """
+            local stale = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1])
+            for i = 1, #stale do
+                redis.call('ZADD', KEYS[1], ARGV[1], stale[i])
+                redis.call('ZREM', KEYS[2], stale[i])
+            end
+            return #stale
+            """;
+
+    private final DefaultRedisScript<Long> releaseLocksScript = new DefaultRedisScript<>(RELEASE_LOCKS_SCRIPT,
+            Long.class);
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> claimExpiredScript = new DefaultRedisScript<>(CLAIM_EXPIRED_SCRIPT,
+            List.class);
+
+    private final DefaultRedisScript<Long> requeueStaleScript = new DefaultRedisScript<>(REQUEUE_STALE_SCRIPT,
+            Long.class);
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String deadlineKey(UUID showtimeId) {
+        return deadlineKey(Math.floorMod(showtimeId.hashCode(), shardCount));
+    }
+
+    /**
+     * Member của deadline set cho 1 lần khóa.
+     */
+    public static String member(String lockKey, String lockId) {
+        return lockKey + MEMBER_SEPARATOR + lockId;
+    }
+
+    public long release(UUID showtimeId, List<String> lockKeys) {
+        if (lockKeys.isEmpty()) {
+            return 0;
+        }
+        List<String> keys = new ArrayList<>(lockKeys.size() + 1);
+        keys.add(deadlineKey(showtimeId));
+        keys.addAll(lockKeys);
+
+        Long deleted = redisTemplate.execute(releaseLocksScript, keys);
+        return deleted != null ? deleted : 0;
+    }
+
+    public List<ExpiredLock> claimExpired(int shard, long now, int limit) {
+        String deadlineKey = deadlineKey(shard);
+        @SuppressWarnings("unchecked")
+        List<String> claimed = redisTemplate.execute(
+                claimExpiredScript,
+                List.of(deadlineKey, deadlineKey + PROCESSING_SUFFIX),
+                String.valueOf(now),
+                String.valueOf(limit));
+        if (claimed == null || claimed.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<ExpiredLock> expired = new ArrayList<>(claimed.size() / 2);
+        for (int i = 0; i + 1 < claimed.size(); i += 2) {
+            expired.add(ExpiredLock.of(claimed.get(i), (long) Double.parseDouble(claimed.get(i + 1))));
+        }
+        return expired;
+    }
+
+    public void acknowledge(int shard, List<String> members) {
+        if (!members.isEmpty()) {
+            redisTemplate.opsForZSet().remove(deadlineKey(shard) + PROCESSING_SUFFIX, members.toArray());
+        }
+    }
+
+    public void retryLater(int shard, String member, long retryAt) {
+        String deadlineKey = deadlineKey(shard);
+        redisTemplate.opsForZSet().add(deadlineKey, member, retryAt);
+        redisTemplate.opsForZSet().remove(deadlineKey + PROCESSING_SUFFIX, member);
+    }
+
+    public long requeueStale(int shard, long claimedBefore) {
+        String deadlineKey = deadlineKey(shard);
+        Long requeued = redisTemplate.execute(
+                requeueStaleScript,
+                List.of(deadlineKey, deadlineKey + PROCESSING_SUFFIX),
+                String.valueOf(claimedBefore));
+        return requeued != null ? requeued : 0;
+    }
+
+    private String deadlineKey(int shard) {
+        return DEADLINE_KEY_PREFIX + shard;
+    }
+
+    /**
+     * 1 lần khóa đã hết hạn: lockId rỗng với lock tạo trước khi có lockId.
+     */
+    public record ExpiredLock(String member, String lockKey, String lockId, long deadline) {
+
+        static ExpiredLock of(String member, long deadline) {
+            int separator = member.lastIndexOf(MEMBER_SEPARATOR);
+            if (separator < 0) {
+                return new ExpiredLock(member, member, "", deadline);
+            }
+            return new ExpiredLock(member, member.substring(0, separator), member.substring(separator + 1),
+                    deadline);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cinehub.showtime.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Metric cho đường nóng khóa ghế, xem qua /actuator/metrics.
+ * - seat.lock.attempts / seat.lock.seats: số lần gọi và số ghế theo thao tác (lock-single, lock) và kết quả
+ * - seat.lock.conflicts: số ghế bị tranh chấp theo suất chiếu (để tìm suất chiếu hot); counter của suất chiếu
+ *   không còn tranh chấp quá seat.lock.metrics.conflict-idle-ms bị gỡ khỏi registry (đếm lại từ 0 nếu có lại)
+ * - seat.lock.redis: độ trễ các script Redis
+ * - seat.lock.expiry.lag: độ trễ từ lúc lock hết hạn tới lúc ghế được giải phóng
+ * - seat.lock.time_to_booking: thời gian từ lúc khóa ghế tới lúc gắn booking
+ */
+@Component
+@RequiredArgsConstructor
+public class SeatLockMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    // Lâu hơn thời gian sống dài nhất của 1 lock (lock thanh toán 600s): hết khoảng này không còn lock
+    // nào của đợt tranh chấp cuối, counter của suất chiếu được gỡ để registry không phình theo số suất chiếu
+    @Value("${seat.lock.metrics.conflict-idle-ms:900000}")
+    private long conflictIdleMillis;
+
+    private final Map<UUID, ConflictCounter> conflictCounters = new ConcurrentHashMap<>();
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_CONFLICT = "conflict";
+    public static final String OUTCOME_UNAVAILABLE = "unavailable";
+    public static final String OUTCOME_REJECTED = "rejected";
+
+    public void recordAttempt(String operation, String outcome, int seatCount) {
+        Counter.builder("seat.lock.attempts")
+                .description("Seat lock requests by outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        Counter.builder("seat.lock.seats")
+                .description("Seats in seat lock requests by outcome")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(seatCount);
+    }
+
+    public void recordConflicts(UUID showtimeId, int seatCount) {
+        ConflictCounter conflicts = conflictCounters.computeIfAbsent(showtimeId, id -> new ConflictCounter(
+                Counter.builder("seat.lock.conflicts")
+                        .description("Seats already locked by another owner")
+                        .tag("showtime", id.toString())
+                        .register(meterRegistry),
+                new AtomicLong()));
+        conflicts.lastRecordedAt().set(System.currentTimeMillis());
+        conflicts.counter().increment(seatCount);
+    }
+
+    public void removeShowtime(UUID showtimeId) {
+        ConflictCounter conflicts = conflictCounters.remove(showtimeId);
+        if (conflicts != null) {
+            meterRegistry.remove(conflicts.counter());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${seat.lock.metrics.sweep-interval-ms:60000}")
+    public void removeIdleShowtimes() {
+        long idleBefore = System.currentTimeMillis() - conflictIdleMillis;
+        conflictCounters.forEach((showtimeId, conflicts) -> {
+            // remove(key, value): không gỡ entry vừa được tạo lại
+            if (conflicts.lastRecordedAt().get() < idleBefore && conflictCounters.remove(showtimeId, conflicts)) {
+                meterRegistry.remove(conflicts.counter());
+            }
+        });
+    }
+
+    public <T> T timeRedis(String script, Supplier<T> call) {
+        return Timer.builder("seat.lock.redis")
+                .description("Latency of seat lock Redis scripts")
+                .tag("script", script)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(call);
+    }
+
+    public void recordExpiryLag(long lagMillis) {
+        Timer.builder("seat.lock.expiry.lag")
+                .description("Delay between lock deadline and seat release")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(0, lagMillis)));
+    }
+
+    public void recordTimeToBooking(long millis) {
+        Timer.builder("seat.lock.time_to_booking")
+                .description("Time from seat lock to booking mapping")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(0, millis)));
+    }
+
+    private record ConflictCounter(Counter counter, AtomicLong lastRecordedAt) {
+    }
+}
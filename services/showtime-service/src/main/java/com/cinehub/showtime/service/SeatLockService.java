@@ -9,10 +9,12 @@ import com.cinehub.showtime.dto.request.SeatLockRequest;
 import com.cinehub.showtime.events.BookingStatusUpdatedEvent;
 import com.cinehub.showtime.events.BookingSeatMappedEvent;
 import com.cinehub.showtime.events.SeatUnlockedEvent;
+import com.cinehub.showtime.exception.AdmissionRequiredException;
 import com.cinehub.showtime.exception.IllegalSeatLockException;
 import com.cinehub.showtime.producer.ShowtimeProducer;
-import com.cinehub.showtime.websocket.SeatLockWebSocketHandler;
+import com.cinehub.showtime.websocket.SeatUpdateBroadcaster;
 import com.cinehub.showtime.dto.request.SingleSeatLockRequest;
+import com.cinehub.showtime.dto.model.SeatLockRecord;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,7 +26,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.Collections;
@@ -37,75 +41,280 @@ public class SeatLockService {
     private final StringRedisTemplate redisTemplate;
     private final ShowtimeProducer showtimeProducer;
     private final ShowtimeSeatRepository showtimeSeatRepository;
-    private final SeatLockWebSocketHandler webSocketHandler;
+    private final SeatUpdateBroadcaster seatUpdateBroadcaster;
+    private final SeatMapCacheService seatMapCacheService;
+    private final SeatStatusPersistenceService seatStatusPersistenceService;
+    private final SeatLockDeadlineTracker deadlineTracker;
+    private final AdmissionControlService admissionControlService;
+    private final SeatLockMetrics seatLockMetrics;
 
     @Value("${lock.timeout:300}")
     private int lockTimeout;
 
-    private static final String UPDATE_LOCK_WITH_TTL_SCRIPT = """
-            local ttl = redis.call('TTL', KEYS[1])
-            if ttl > 0 then
-                redis.call('SET', KEYS[1], ARGV[1], 'EX', ttl)
-                return 1
-            else
-                return 0
+    private static final long UNLOCK_NOT_OWNER = -1L;
+    private static final String OP_LOCK_SINGLE = "lock-single";
+    private static final String OP_LOCK = "lock";
+    private static final long PAYMENT_LOCK_TIMEOUT = 600L;
+    private static final long BOOKING_MAPPING_EXTRA_TTL = 60L;
+
+    /**
+     * Hàm Lua dùng chung: chuyển lock dạng string cũ ("ownerType|ownerId|expireAt" hoặc
+     * "bookingId|ownerType|ownerId|expireAt", trước khi lock là hash {@link SeatLockRecord}) sang hash,
+     * giữ nguyên TTL. Lock cũ không có lockId nên deadline vẫn là member dạng key trần.
+     * Lock được tạo mới luôn là hash, nên chỉ cần cho các script sửa lock đã có khi deploy còn lock cũ.
+     */
+    private static final String UPGRADE_LEGACY_LOCK = """
+            local function upgradeLegacyLock(key)
+                if redis.call('TYPE', key).ok ~= 'string' then
+                    return
+                end
+                local parts = {}
+                for part in string.gmatch(redis.call('GET', key), '[^|]+') do
+                    parts[#parts + 1] = part
+                end
+                local pttl = redis.call('PTTL', key)
+                redis.call('DEL', key)
+                if #parts < 3 or pttl <= 0 then
+                    return
+                end
+                local offset = #parts - 3
+                redis.call('HSET', key, 'v', '%s', 'ownerType', parts[1 + offset],
+                        'ownerId', parts[2 + offset], 'expireAt', parts[3 + offset])
+                if offset == 1 then
+                    redis.call('HSET', key, 'bookingId', parts[1])
+                end
+                redis.call('PEXPIRE', key, pttl)
             end
+            """.formatted(SeatLockRecord.VERSION);
+
+    /**
+     * Gắn bookingId vào tất cả lock còn hiệu lực của booking (HSET giữ nguyên TTL của hash)
+     * và ghi mapping sống lâu hơn lock ARGV[2] giây. Mapping của mỗi ghế là hash lockId -> bookingId,
+     * để lần khóa hết hạn luôn tìm đúng booking của nó kể cả khi ghế đã được khóa và map lại.
+     * KEYS: từng cặp (seat key, mapping key), ARGV[1]: bookingId, ARGV[2]: thời gian giữ thêm (giây).
+     * Trả về expireAt (ms) của từng ghế, -2 nếu lock không tồn tại.
+     */
+    private static final String MAP_BOOKING_SCRIPT = UPGRADE_LEGACY_LOCK + """
+            local results = {}
+            for i = 1, #KEYS, 2 do
+                upgradeLegacyLock(KEYS[i])
+                local ttl = redis.call('TTL', KEYS[i])
+                if ttl > 0 then
+                    local lockId = redis.call('HGET', KEYS[i], 'lockId') or ''
+                    redis.call('HSET', KEYS[i], 'bookingId', ARGV[1])
+                    -- Mapping dạng chuỗi cũ (trước khi có lockId)
+                    if redis.call('TYPE', KEYS[i + 1]).ok == 'string' then
+                        redis.call('DEL', KEYS[i + 1])
+                    end
+                    redis.call('HSET', KEYS[i + 1], lockId, ARGV[1])
+                    local mappingTtl = ttl + tonumber(ARGV[2])
+                    if redis.call('TTL', KEYS[i + 1]) < mappingTtl then
+                        redis.call('EXPIRE', KEYS[i + 1], mappingTtl)
+                    end
+                    table.insert(results, tonumber(redis.call('HGET', KEYS[i], 'expireAt')))
+                else
+                    table.insert(results, -2)
+                end
+            end
+            return results
+            """;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> mapBookingScript = new DefaultRedisScript<>(MAP_BOOKING_SCRIPT,
+            List.class);
+
+    /**
+     * Gia hạn tất cả lock để thanh toán (all-or-nothing), kèm key mapping booking để mapping vẫn sống lâu hơn
+     * lock ARGV[3] giây (nếu không, lock hết hạn sẽ không tìm được booking để báo SEAT_UNLOCKED).
+     * KEYS[1]: deadline key, KEYS[2..]: từng cặp (seat key, mapping key),
+     * ARGV[1]: TTL mới (giây), ARGV[2]: expireAt mới (ms), ARGV[3]: thời gian mapping giữ thêm (giây).
+     * Trả về 1 cho từng ghế nếu đã gia hạn; nếu có ghế mất lock thì không gia hạn ghế nào
+     * và trả về 0 cho ghế mất lock, 1 cho ghế còn lock.
+     */
+    private static final String EXTEND_LOCKS_SCRIPT = UPGRADE_LEGACY_LOCK + """
+            local results = {}
+            local missing = false
+            for i = 2, #KEYS, 2 do
+                upgradeLegacyLock(KEYS[i])
+                local exists = redis.call('EXISTS', KEYS[i])
+                table.insert(results, exists)
+                if exists == 0 then
+                    missing = true
+                end
+            end
+            if missing then
+                return results
+            end
+            local mappingTtl = tonumber(ARGV[1]) + tonumber(ARGV[3])
+            for i = 2, #KEYS, 2 do
+                local lockId = redis.call('HGET', KEYS[i], 'lockId')
+                redis.call('HSET', KEYS[i], 'expireAt', ARGV[2])
+                redis.call('EXPIRE', KEYS[i], ARGV[1])
+                if lockId then
+                    redis.call('ZADD', KEYS[1], ARGV[2], KEYS[i] .. '#' .. lockId)
+                else
+                    redis.call('ZADD', KEYS[1], ARGV[2], KEYS[i])
+                end
+                if redis.call('TTL', KEYS[i + 1]) < mappingTtl then
+                    redis.call('EXPIRE', KEYS[i + 1], mappingTtl)
+                end
+            end
+            return results
             """;
 
-    private final DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>(UPDATE_LOCK_WITH_TTL_SCRIPT,
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> extendLocksScript = new DefaultRedisScript<>(EXTEND_LOCKS_SCRIPT,
+            List.class);
+
+    /**
+     * Khóa toàn bộ ghế trong 1 lần gọi (all-or-nothing) và ghi deadline hết hạn.
+     * Mỗi lock là 1 hash theo định dạng {@link SeatLockRecord}.
+     * KEYS[1]: deadline key, KEYS[2..]: seat:{showtimeId}:{seatId},
+     * ARGV[1]: version, ARGV[2]: ownerType, ARGV[3]: ownerId, ARGV[4]: TTL (giây), ARGV[5]: expireAt (ms),
+     * ARGV[6]: lockId (định danh lần khóa, dùng làm member của deadline set).
+     * Trả về danh sách key đang bị khóa; rỗng nghĩa là đã khóa thành công tất cả.
+     */
+    private static final String LOCK_SEATS_SCRIPT = """
+            local conflicts = {}
+            for i = 2, #KEYS do
+                if redis.call('EXISTS', KEYS[i]) == 1 then
+                    table.insert(conflicts, KEYS[i])
+                end
+            end
+            if #conflicts > 0 then
+                return conflicts
+            end
+            for i = 2, #KEYS do
+                redis.call('HSET', KEYS[i], 'v', ARGV[1], 'ownerType', ARGV[2], 'ownerId', ARGV[3],
+                        'expireAt', ARGV[5], 'lockId', ARGV[6])
+                redis.call('EXPIRE', KEYS[i], ARGV[4])
+                redis.call('ZADD', KEYS[1], ARGV[5], KEYS[i] .. '#' .. ARGV[6])
+            end
+            return conflicts
+            """;
+
+    /**
+     * Giải phóng các lock thuộc về owner, so sánh field ngay trong script (không tách chuỗi).
+     * KEYS[1]: deadline key, KEYS[2..]: seat keys, ARGV[1]: ownerType, ARGV[2]: ownerId.
+     * Trả về mã cho từng key: 1 đã giải phóng, 0 lock không tồn tại, -1 không phải owner.
+     */
+    private static final String UNLOCK_OWNED_SCRIPT = UPGRADE_LEGACY_LOCK + """
+            local results = {}
+            for i = 2, #KEYS do
+                upgradeLegacyLock(KEYS[i])
+                local owner = redis.call('HMGET', KEYS[i], 'ownerType', 'ownerId', 'lockId')
+                if not owner[1] then
+                    redis.call('ZREM', KEYS[1], KEYS[i])
+                    results[i - 1] = 0
+                elseif owner[1] == ARGV[1] and owner[2] == ARGV[2] then
+                    redis.call('DEL', KEYS[i])
+                    redis.call('ZREM', KEYS[1], KEYS[i] .. '#' .. (owner[3] or ''), KEYS[i])
+                    results[i - 1] = 1
+                else
+                    results[i - 1] = -1
+                end
+            end
+            return results
+            """;
+
+    /**
+     * Với từng lần khóa đã hết hạn: ghế đã bị khóa lại chưa, và bookingId đã map cho lần khóa đó.
+     * Chỉ đọc: mapping được xóa sau khi đã gửi event để lần thử lại (nếu xử lý lỗi) vẫn tìm thấy booking.
+     * KEYS: từng cặp (seat key, mapping key), ARGV: lockId theo từng cặp ('' với lock trước khi có lockId).
+     * Trả về danh sách phẳng [1 nếu ghế đang bị khóa lại / 0, bookingId hoặc '', ...].
+     */
+    private static final String READ_EXPIRED_MAPPINGS_SCRIPT = """
+            local results = {}
+            for i = 1, #KEYS, 2 do
+                local lockId = ARGV[(i + 1) / 2]
+                local bookingId = false
+                local mappingType = redis.call('TYPE', KEYS[i + 1]).ok
+                if mappingType == 'hash' then
+                    bookingId = redis.call('HGET', KEYS[i + 1], lockId)
+                elseif mappingType == 'string' and lockId == '' then
+                    bookingId = redis.call('GET', KEYS[i + 1])
+                end
+                table.insert(results, redis.call('EXISTS', KEYS[i]))
+                table.insert(results, bookingId or '')
+            end
+            return results
+            """;
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> readExpiredMappingsScript = new DefaultRedisScript<>(
+            READ_EXPIRED_MAPPINGS_SCRIPT, List.class);
+
+    /**
+     * Xóa mapping của các lần khóa đã xử lý. KEYS: mapping keys, ARGV: lockId tương ứng.
+     */
+    private static final String DELETE_MAPPINGS_SCRIPT = """
+            for i = 1, #KEYS do
+                if redis.call('TYPE', KEYS[i]).ok == 'hash' then
+                    redis.call('HDEL', KEYS[i], ARGV[i])
+                elseif ARGV[i] == '' then
+                    redis.call('DEL', KEYS[i])
+                end
+            end
+            return #KEYS
+            """;
+
+    private final DefaultRedisScript<Long> deleteMappingsScript = new DefaultRedisScript<>(DELETE_MAPPINGS_SCRIPT,
             Long.class);
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> unlockOwnedScript = new DefaultRedisScript<>(UNLOCK_OWNED_SCRIPT,
+            List.class);
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> lockSeatsScript = new DefaultRedisScript<>(LOCK_SEATS_SCRIPT,
+            List.class);
+
     @Transactional
     public SeatLockResponse lockSingleSeat(SingleSeatLockRequest req) {
 
         UUID seatId = req.getSelectedSeat().getSeatId();
 
+        // Suất chiếu đang bật phòng chờ: chỉ phiên đã được cấp lượt mới được chọn ghế
+        requireAdmission(OP_LOCK_SINGLE, req.getShowtimeId(), req.getUserId(), req.getGuestSessionId(), 1);
+
         // Validate showtime-seat combination exists
         ShowtimeSeat showtimeSeat = showtimeSeatRepository.findByShowtime_IdAndSeat_Id(
                 req.getShowtimeId(), seatId)
-                .orElseThrow(() -> new IllegalSeatLockException(
+                .orElseThrow(() -> unavailable(OP_LOCK_SINGLE, 1,
                         "Showtime or seat not found: showtimeId=" + req.getShowtimeId() + ", seatId=" + seatId));
 
         Showtime showtime = showtimeSeat.getShowtime();
 
         // Check 1: Status
         if (showtime.getStatus() == com.cinehub.showtime.entity.ShowtimeStatus.SUSPENDED) {
-            throw new IllegalSeatLockException("Showtime is SUSPENDED. Cannot lock seat.");
+            throw unavailable(OP_LOCK_SINGLE, 1, "Showtime is SUSPENDED. Cannot lock seat.");
         }
 
         // Check 2: Time (Không cho đặt vé suất đã chiếu hoặc sắp chiếu trong vòng X
         // phút nếu cần)
         if (showtime.getStartTime().isBefore(LocalDateTime.now())) {
-            throw new IllegalSeatLockException("Showtime has already started. Cannot lock seat.");
+            throw unavailable(OP_LOCK_SINGLE, 1, "Showtime has already started. Cannot lock seat.");
         }
 
         String key = key(req.getShowtimeId(), seatId);
         long expireAt = System.currentTimeMillis() + lockTimeout * 1000L;
+        SeatLockRecord lock = SeatLockRecord.forOwner(req.getUserId(), req.getGuestSessionId(), expireAt);
 
-        String ownerType;
-        String ownerIdentifier;
-
-        if (req.getUserId() != null) {
-            ownerType = "USER";
-            ownerIdentifier = req.getUserId().toString();
-        } else {
-            ownerType = "GUEST";
-            ownerIdentifier = req.getGuestSessionId().toString();
-        }
-
-        String value = ownerType + "|" + ownerIdentifier + "|" + expireAt;
-
-        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value, lockTimeout, TimeUnit.SECONDS);
+        List<UUID> conflictedSeats = lockAllOrNothing(req.getShowtimeId(), List.of(key), List.of(seatId), lock);
 
-        if (Boolean.FALSE.equals(success)) {
+        if (!conflictedSeats.isEmpty()) {
+            seatLockMetrics.recordAttempt(OP_LOCK_SINGLE, SeatLockMetrics.OUTCOME_CONFLICT, 1);
+            seatLockMetrics.recordConflicts(req.getShowtimeId(), 1);
             throw new IllegalSeatLockException("Seat " + seatId + " is already locked by another user.");
         }
 
-        int updatedCount = showtimeSeatRepository.updateSingleSeatStatus(
+        int updatedCount = seatStatusPersistenceService.writeTransient(
                 req.getShowtimeId(),
-                seatId,
-                ShowtimeSeat.SeatStatus.LOCKED,
-                LocalDateTime.now());
+                List.of(seatId),
+                ShowtimeSeat.SeatStatus.LOCKED);
+        seatMapCacheService.updateSeatStates(req.getShowtimeId(), List.of(seatId), ShowtimeSeat.SeatStatus.LOCKED);
+
+        seatLockMetrics.recordAttempt(OP_LOCK_SINGLE, SeatLockMetrics.OUTCOME_SUCCESS, 1);
 
         log.info("Seat {} locked (Redis+DB) for showtime {} by {}. DB updated: {}",
                 seatId, req.getShowtimeId(),
@@ -115,7 +324,7 @@ public class SeatLockService {
         SeatLockResponse response = buildLockResponse(req.getShowtimeId(), seatId, "LOCKED", lockTimeout);
 
         // Push WebSocket update
-        webSocketHandler.broadcastToShowtime(req.getShowtimeId(), response);
+        seatUpdateBroadcaster.publish(req.getShowtimeId(), response);
 
         return response;
     }
@@ -124,53 +333,20 @@ public class SeatLockService {
     public SeatLockResponse unlockSingleSeat(UUID showtimeId, UUID seatId, UUID userId, UUID guestSessionId) {
         String key = key(showtimeId, seatId);
 
-        String currentValue = redisTemplate.opsForValue().get(key);
-        if (currentValue != null) {
-            String[] parts = currentValue.split("\\|");
-            
-            boolean isOwner = false;
-            
-            // Format 1: USER|{userId} hoặc GUEST|{guestSessionId} (chưa có booking)
-            // Format 2: {bookingId}|USER|{userId} hoặc {bookingId}|GUEST|{guestSessionId} (đã có booking)
-            
-            if (parts.length == 2) {
-                // Format 1: chưa có booking
-                String ownerType = parts[0];
-                String ownerIdentifier = parts[1];
-                
-                if ("USER".equals(ownerType) && userId != null) {
-                    isOwner = ownerIdentifier.equals(userId.toString());
-                } else if ("GUEST".equals(ownerType) && guestSessionId != null) {
-                    isOwner = ownerIdentifier.equals(guestSessionId.toString());
-                }
-            } else if (parts.length >= 3) {
-                // Format 2: đã có booking - {bookingId}|USER|{userId}
-                String ownerType = parts[1];
-                String ownerIdentifier = parts[2];
-                
-                if ("USER".equals(ownerType) && userId != null) {
-                    isOwner = ownerIdentifier.equals(userId.toString());
-                } else if ("GUEST".equals(ownerType) && guestSessionId != null) {
-                    isOwner = ownerIdentifier.equals(guestSessionId.toString());
-                }
-            }
-
-            if (!isOwner) {
-                log.warn("Unlock failed: User {} / Guest {} does not own seat lock. Current value: {}", 
-                        userId, guestSessionId, currentValue);
-                throw new IllegalSeatLockException("You don't own this seat lock");
-            }
+        // Kiểm tra owner + xóa lock trong cùng 1 script
+        List<Long> results = unlockOwned(showtimeId, List.of(key), userId, guestSessionId);
+        if (results.get(0) == UNLOCK_NOT_OWNER) {
+            log.warn("Unlock failed: User {} / Guest {} does not own lock of seat {}",
+                    userId, guestSessionId, seatId);
+            throw new IllegalSeatLockException("You don't own this seat lock");
         }
 
-        // Delete Redis lock
-        redisTemplate.delete(key);
-
         // Update DB
-        int updatedCount = showtimeSeatRepository.updateSingleSeatStatus(
+        int updatedCount = seatStatusPersistenceService.writeTransient(
                 showtimeId,
-                seatId,
-                ShowtimeSeat.SeatStatus.AVAILABLE,
-                LocalDateTime.now());
+                List.of(seatId),
+                ShowtimeSeat.SeatStatus.AVAILABLE);
+        seatMapCacheService.updateSeatStates(showtimeId, List.of(seatId), ShowtimeSeat.SeatStatus.AVAILABLE);
 
         log.info("Seat {} unlocked (Redis+DB) for showtime {}. DB updated: {}",
                 seatId, showtimeId, updatedCount);
@@ -178,7 +354,7 @@ public class SeatLockService {
         SeatLockResponse response = buildLockResponse(showtimeId, seatId, "AVAILABLE", 0);
 
         // Push WebSocket update
-        webSocketHandler.broadcastToShowtime(showtimeId, response);
+        seatUpdateBroadcaster.publish(showtimeId, response);
 
         SeatUnlockedEvent event = new SeatUnlockedEvent(
                 null, // no bookingId for manual unlock
@@ -194,77 +370,51 @@ public class SeatLockService {
     @Transactional
     public List<SeatLockResponse> unlockBatchSeats(UUID showtimeId, List<UUID> seatIds, UUID userId, UUID guestSessionId) {
         List<SeatLockResponse> responses = new ArrayList<>();
-        
-        for (UUID seatId : seatIds) {
-            String key = key(showtimeId, seatId);
-
-            String currentValue = redisTemplate.opsForValue().get(key);
-            if (currentValue != null) {
-                String[] parts = currentValue.split("\\|");
-                
-                boolean isOwner = false;
-                
-                // Format 1: USER|{userId} hoặc GUEST|{guestSessionId} (chưa có booking)
-                // Format 2: {bookingId}|USER|{userId} hoặc {bookingId}|GUEST|{guestSessionId} (đã có booking)
-                
-                if (parts.length == 2) {
-                    // Format 1: chưa có booking
-                    String ownerType = parts[0];
-                    String ownerIdentifier = parts[1];
-                    
-                    if ("USER".equals(ownerType) && userId != null) {
-                        isOwner = ownerIdentifier.equals(userId.toString());
-                    } else if ("GUEST".equals(ownerType) && guestSessionId != null) {
-                        isOwner = ownerIdentifier.equals(guestSessionId.toString());
-                    }
-                } else if (parts.length >= 3) {
-                    // Format 2: đã có booking - {bookingId}|USER|{userId}
-                    String ownerType = parts[1];
-                    String ownerIdentifier = parts[2];
-                    
-                    if ("USER".equals(ownerType) && userId != null) {
-                        isOwner = ownerIdentifier.equals(userId.toString());
-                    } else if ("GUEST".equals(ownerType) && guestSessionId != null) {
-                        isOwner = ownerIdentifier.equals(guestSessionId.toString());
-                    }
-                }
-
-                if (!isOwner) {
-                    log.warn("Skipping seat {} - not owned by user {} / guest {}. Current value: {}", 
-                            seatId, userId, guestSessionId, currentValue);
-                    continue;
-                }
+        List<String> keys = seatIds.stream()
+                .map(seatId -> key(showtimeId, seatId))
+                .toList();
+
+        // Kiểm tra owner + xóa lock của tất cả ghế trong 1 script
+        List<Long> results = unlockOwned(showtimeId, keys, userId, guestSessionId);
+
+        List<UUID> releasedSeatIds = new ArrayList<>();
+        for (int i = 0; i < seatIds.size(); i++) {
+            if (results.get(i) == UNLOCK_NOT_OWNER) {
+                log.warn("Skipping seat {} - not owned by user {} / guest {}",
+                        seatIds.get(i), userId, guestSessionId);
+                continue;
             }
+            releasedSeatIds.add(seatIds.get(i));
+        }
 
-            // Delete Redis lock
-            redisTemplate.delete(key);
+        if (releasedSeatIds.isEmpty()) {
+            return responses;
         }
 
         // Update DB in batch
-        int updatedCount = showtimeSeatRepository.bulkUpdateSeatStatus(
+        int updatedCount = seatStatusPersistenceService.writeTransient(
                 showtimeId,
-                seatIds,
-                ShowtimeSeat.SeatStatus.AVAILABLE,
-                LocalDateTime.now());
+                releasedSeatIds,
+                ShowtimeSeat.SeatStatus.AVAILABLE);
+        seatMapCacheService.updateSeatStates(showtimeId, releasedSeatIds, ShowtimeSeat.SeatStatus.AVAILABLE);
 
         log.info("{} seats unlocked (Redis+DB) for showtime {}. DB updated: {}",
-                seatIds.size(), showtimeId, updatedCount);
+                releasedSeatIds.size(), showtimeId, updatedCount);
 
         // Build responses and broadcast
-        for (UUID seatId : seatIds) {
-            SeatLockResponse response = buildLockResponse(showtimeId, seatId, "AVAILABLE", 0);
-            responses.add(response);
-            webSocketHandler.broadcastToShowtime(showtimeId, response);
+        for (UUID seatId : releasedSeatIds) {
+            responses.add(buildLockResponse(showtimeId, seatId, "AVAILABLE", 0));
         }
+        seatUpdateBroadcaster.publish(showtimeId, responses);
 
         // Publish event
         SeatUnlockedEvent event = new SeatUnlockedEvent(
                 null,
                 showtimeId,
-                seatIds,
+                releasedSeatIds,
                 "Manual batch unlock by user");
         showtimeProducer.sendSeatUnlockedEvent(event);
-        log.info("Published SeatUnlockedEvent for {} seats in showtime {}", seatIds.size(), showtimeId);
+        log.info("Published SeatUnlockedEvent for {} seats in showtime {}", releasedSeatIds.size(), showtimeId);
 
         return responses;
     }
@@ -273,74 +423,70 @@ public class SeatLockService {
     public List<SeatLockResponse> lockSeats(SeatLockRequest req) {
 
         List<SeatLockResponse> responses = new java.util.ArrayList<>();
-        List<UUID> successfullyLockedSeats = new java.util.ArrayList<>();
         List<UUID> seatIds = req.getSelectedSeats().stream().map(SeatSelectionDetail::getSeatId).toList();
 
+        requireAdmission(OP_LOCK, req.getShowtimeId(), req.getUserId(), req.getGuestSessionId(), seatIds.size());
+
         List<ShowtimeSeat> dbSeats = showtimeSeatRepository.findByShowtimeAndSeatIds(req.getShowtimeId(),
                 seatIds);
 
         if (dbSeats.size() != seatIds.size()) {
-            throw new IllegalSeatLockException("Some seats are invalid or do not belong to this showtime.");
+            throw unavailable(OP_LOCK, seatIds.size(), "Some seats are invalid or do not belong to this showtime.");
         }
         Showtime showtime = dbSeats.get(0).getShowtime();
 
         // Check 1: Status
         if (showtime.getStatus() == com.cinehub.showtime.entity.ShowtimeStatus.SUSPENDED) {
-            throw new IllegalSeatLockException("Showtime is SUSPENDED. Cannot lock seat.");
+            throw unavailable(OP_LOCK, seatIds.size(), "Showtime is SUSPENDED. Cannot lock seat.");
         }
 
         // Check 2: Time (Không cho đặt vé suất đã chiếu hoặc sắp chiếu trong vòng X
         // phút nếu cần)
         if (showtime.getStartTime().isBefore(LocalDateTime.now())) {
-            throw new IllegalSeatLockException("Showtime has already started. Cannot lock seat.");
+            throw unavailable(OP_LOCK, seatIds.size(), "Showtime has already started. Cannot lock seat.");
         }
 
+        // Khi bật write-behind, trạng thái LOCKED trong DB có thể trễ hơn Redis nên chỉ
+        // tin BOOKED từ DB; xung đột khóa do script Redis phát hiện
+        boolean trustDbLocks = !seatStatusPersistenceService.isWriteBehindEnabled();
         for (ShowtimeSeat seat : dbSeats) {
-            if (seat.getStatus() == ShowtimeSeat.SeatStatus.LOCKED ||
+            if ((trustDbLocks && seat.getStatus() == ShowtimeSeat.SeatStatus.LOCKED) ||
                     seat.getStatus() == ShowtimeSeat.SeatStatus.BOOKED) {
-                throw new IllegalSeatLockException(
+                throw unavailable(OP_LOCK, seatIds.size(),
                         "Seat " + seat.getSeat().getSeatNumber() + " is already locked or booked.");
             }
         }
 
-        for (SeatSelectionDetail seatDetail : req.getSelectedSeats()) {
-            UUID seatId = seatDetail.getSeatId();
-            String key = key(req.getShowtimeId(), seatId);
-            long expireAt = System.currentTimeMillis() + lockTimeout * 1000L;
-
-            String ownerType;
-            String ownerIdentifier;
-
-            if (req.getUserId() != null) {
-                ownerType = "USER";
-                ownerIdentifier = req.getUserId().toString();
-            } else {
-                ownerType = "GUEST";
-                ownerIdentifier = req.getGuestSessionId().toString();
-            }
-
-            String value = ownerType + "|" + ownerIdentifier + "|" + expireAt;
-
-            Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value, lockTimeout, TimeUnit.SECONDS);
-
-            if (Boolean.TRUE.equals(success)) {
-                successfullyLockedSeats.add(seatId);
-                responses.add(buildLockResponse(req.getShowtimeId(), seatId, "LOCKED", lockTimeout));
-            } else {
-                log.warn("Seat {} of showtime {} already locked. Rolling back {} seats.",
-                        seatId, req.getShowtimeId(), successfullyLockedSeats.size());
+        long expireAt = System.currentTimeMillis() + lockTimeout * 1000L;
+        SeatLockRecord lock = SeatLockRecord.forOwner(req.getUserId(), req.getGuestSessionId(), expireAt);
 
-                deleteRedisLocks(req.getShowtimeId(), successfullyLockedSeats);
+        // Kiểm tra + khóa tất cả ghế trong 1 round trip, không có trạng thái khóa một
+        // phần nên không cần rollback
+        List<String> keys = seatIds.stream()
+                .map(seatId -> key(req.getShowtimeId(), seatId))
+                .toList();
+        List<UUID> conflictedSeats = lockAllOrNothing(req.getShowtimeId(), keys, seatIds, lock);
+
+        if (!conflictedSeats.isEmpty()) {
+            log.warn("Seats {} of showtime {} already locked. No seat was locked.",
+                    conflictedSeats, req.getShowtimeId());
+            seatLockMetrics.recordAttempt(OP_LOCK, SeatLockMetrics.OUTCOME_CONFLICT, seatIds.size());
+            seatLockMetrics.recordConflicts(req.getShowtimeId(), conflictedSeats.size());
+            throw new IllegalSeatLockException(
+                    "Seats " + conflictedSeats + " are already locked by another user or session.");
+        }
 
-                throw new IllegalSeatLockException("Seat " + seatId + " is already locked by another user or session.");
-            }
+        for (UUID seatId : seatIds) {
+            responses.add(buildLockResponse(req.getShowtimeId(), seatId, "LOCKED", lockTimeout));
         }
 
-        int updatedCount = showtimeSeatRepository.bulkUpdateSeatStatus(
+        int updatedCount = seatStatusPersistenceService.writeTransient(
                 req.getShowtimeId(),
                 seatIds,
-                ShowtimeSeat.SeatStatus.LOCKED,
-                LocalDateTime.now());
+                ShowtimeSeat.SeatStatus.LOCKED);
+        seatMapCacheService.updateSeatStates(req.getShowtimeId(), seatIds, ShowtimeSeat.SeatStatus.LOCKED);
+
+        seatLockMetrics.recordAttempt(OP_LOCK, SeatLockMetrics.OUTCOME_SUCCESS, seatIds.size());
 
         if (req.getUserId() != null) {
             log.info("All {} seats locked (Redis+DB) for showtime {} by user {}. DB updated: {}",
@@ -353,55 +499,59 @@ public class SeatLockService {
                     updatedCount);
         }
 
-        for (UUID seatId : successfullyLockedSeats) {
-            SeatLockResponse response = buildLockResponse(req.getShowtimeId(), seatId, "LOCKED", lockTimeout);
-            webSocketHandler.broadcastToShowtime(req.getShowtimeId(), response);
-        }
+        seatUpdateBroadcaster.publish(req.getShowtimeId(), responses);
 
         return responses;
     }
 
-    public void mapBookingIdToSeatLocks(BookingSeatMappedEvent event) {
+    /**
+     * Gắn bookingId vào lock của các ghế trong 1 lần gọi script.
+     * Ghế đã mất lock trước khi map sẽ không bao giờ được poller báo về booking,
+     * nên gửi SeatUnlockedEvent ngay để booking-service hủy booking.
+     *
+     * @return các ghế không map được do lock đã hết hạn
+     */
+    public List<UUID> mapBookingIdToSeatLocks(BookingSeatMappedEvent event) {
         log.info("MAPPING: Received bookingId {} for showtime {}. Updating Redis locks...",
                 event.bookingId(), event.showtimeId());
 
         String newBookingId = event.bookingId().toString();
+        List<UUID> seatIds = event.seatIds();
+
+        List<String> keys = new ArrayList<>(seatIds.size() * 2);
+        for (UUID seatId : seatIds) {
+            keys.add(key(event.showtimeId(), seatId));
+            keys.add(mappingKey(event.showtimeId(), seatId));
+        }
 
-        for (UUID seatId : event.seatIds()) {
-            String lockKey = key(event.showtimeId(), seatId);
-
-            String currentValue = redisTemplate.opsForValue().get(lockKey);
-
-            // Kiểm tra: Lock còn tồn tại và chưa bị map (không bắt đầu bằng bookingId)
-            if (currentValue != null && !currentValue.startsWith(newBookingId)) {
-                // Giá trị mới: bookingId|userId|expireAt
-                String newValue = newBookingId + "|" + currentValue;
-
-                // Thực thi LUA Script để cập nhật giá trị và bảo toàn TTL
-                Long result = redisTemplate.execute(
-                        redisScript,
-                        List.of(lockKey),
-                        newValue);
-
-                if (result == 1) {
-                    Long currentTTL = redisTemplate.getExpire(lockKey, TimeUnit.SECONDS);
-                    if (currentTTL != null && currentTTL > 0) {
-                        String mappingKey = BOOKING_MAPPING_KEY_PREFIX + event.showtimeId().toString() + ":"
-                                + seatId.toString();
-
-                        // Key mapping chỉ cần giữ bookingId
-                        redisTemplate.opsForValue().set(mappingKey, newBookingId, currentTTL + 60, TimeUnit.SECONDS);
-                        log.debug("MAPPING: Created dedicated mapping key {} with TTL {}s.", mappingKey,
-                                currentTTL + 60);
-                    }
-                    log.debug("MAPPING: Successfully mapped booking {} to lock {}.", newBookingId, lockKey);
-                } else {
-                    log.warn("MAPPING: Lock {} expired or not found before mapping booking {}.", lockKey, newBookingId);
-                }
-            } else if (currentValue == null) {
-                log.warn("MAPPING: Lock key {} already expired. Cannot map bookingId {}.", lockKey, newBookingId);
+        @SuppressWarnings("unchecked")
+        List<Long> expireAts = seatLockMetrics.timeRedis("map-booking", () -> redisTemplate.execute(
+                mapBookingScript, keys, newBookingId, String.valueOf(BOOKING_MAPPING_EXTRA_TTL)));
+
+        long now = System.currentTimeMillis();
+        List<UUID> unmappedSeats = new ArrayList<>();
+        for (int i = 0; i < seatIds.size(); i++) {
+            if (expireAts == null || expireAts.get(i) <= 0) {
+                unmappedSeats.add(seatIds.get(i));
+            } else {
+                // Thời điểm khóa = expireAt - lock.timeout (lock chưa được gia hạn khi map booking)
+                seatLockMetrics.recordTimeToBooking(now - (expireAts.get(i) - lockTimeout * 1000L));
             }
         }
+
+        if (unmappedSeats.isEmpty()) {
+            log.debug("MAPPING: Mapped booking {} to {} seat locks.", newBookingId, seatIds.size());
+            return unmappedSeats;
+        }
+
+        log.warn("MAPPING: Locks of seats {} already expired. Cannot map bookingId {}.", unmappedSeats,
+                newBookingId);
+        showtimeProducer.sendSeatUnlockedEvent(new SeatUnlockedEvent(
+                event.bookingId(),
+                event.showtimeId(),
+                unmappedSeats,
+                "SEAT_LOCK_EXPIRED"));
+        return unmappedSeats;
     }
 
     @Transactional
@@ -412,11 +562,11 @@ public class SeatLockService {
         }
 
         // 1. Update DB
-        int updated = showtimeSeatRepository.bulkUpdateSeatStatus(
+        int updated = seatStatusPersistenceService.writeNow(
                 event.showtimeId(),
                 event.seatIds(),
-                ShowtimeSeat.SeatStatus.BOOKED,
-                LocalDateTime.now());
+                ShowtimeSeat.SeatStatus.BOOKED);
+        seatMapCacheService.updateSeatStates(event.showtimeId(), event.seatIds(), ShowtimeSeat.SeatStatus.BOOKED);
 
         log.info("CONFIRMED: Bulk updated {} seats for booking {} to BOOKED.", updated, event.bookingId());
 
@@ -424,12 +574,11 @@ public class SeatLockService {
         deleteRedisLocks(event.showtimeId(), event.seatIds());
 
         // 3. [QUAN TRỌNG] Broadcast thông báo ghế đã bán (BOOKED)
-        for (UUID seatId : event.seatIds()) {
-            // Status gửi xuống Client nên là "BOOKED" hoặc "SOLD" tùy quy ước Frontend của
-            // bạn
-            SeatLockResponse response = buildLockResponse(event.showtimeId(), seatId, "BOOKED", 0);
-            webSocketHandler.broadcastToShowtime(event.showtimeId(), response);
-        }
+        // Status gửi xuống Client nên là "BOOKED" hoặc "SOLD" tùy quy ước Frontend của
+        // bạn
+        seatUpdateBroadcaster.publish(event.showtimeId(), event.seatIds().stream()
+                .map(seatId -> buildLockResponse(event.showtimeId(), seatId, "BOOKED", 0))
+                .toList());
     }
 
     @Transactional
@@ -440,21 +589,20 @@ public class SeatLockService {
             return;
         }
 
-        int updated = showtimeSeatRepository.bulkUpdateSeatStatus(
+        int updated = seatStatusPersistenceService.writeNow(
                 event.showtimeId(),
                 event.seatIds(),
-                ShowtimeSeat.SeatStatus.AVAILABLE,
-                LocalDateTime.now());
+                ShowtimeSeat.SeatStatus.AVAILABLE);
+        seatMapCacheService.updateSeatStates(event.showtimeId(), event.seatIds(), ShowtimeSeat.SeatStatus.AVAILABLE);
 
         log.info("RELEASED (Status: {}): Bulk updated {} seats for booking {}.", status, updated, event.bookingId());
 
         // Xóa lock Redis
         deleteRedisLocks(event.showtimeId(), event.seatIds());
 
-        for (UUID seatId : event.seatIds()) {
-            SeatLockResponse response = buildLockResponse(event.showtimeId(), seatId, "AVAILABLE", 0);
-            webSocketHandler.broadcastToShowtime(event.showtimeId(), response);
-        }
+        seatUpdateBroadcaster.publish(event.showtimeId(), event.seatIds().stream()
+                .map(seatId -> buildLockResponse(event.showtimeId(), seatId, "AVAILABLE", 0))
+                .toList());
     }
 
     @Transactional
@@ -464,11 +612,11 @@ public class SeatLockService {
         deleteRedisLocks(showtimeId, seatIds);
 
         // 2. Cập nhật DB
-        int updatedCount = showtimeSeatRepository.bulkUpdateSeatStatus(
+        int updatedCount = seatStatusPersistenceService.writeNow(
                 showtimeId,
                 seatIds,
-                ShowtimeSeat.SeatStatus.AVAILABLE,
-                LocalDateTime.now());
+                ShowtimeSeat.SeatStatus.AVAILABLE);
+        seatMapCacheService.updateSeatStates(showtimeId, seatIds, ShowtimeSeat.SeatStatus.AVAILABLE);
 
         // 3. Gửi Event
         SeatUnlockedEvent event = new SeatUnlockedEvent(
@@ -482,62 +630,101 @@ public class SeatLockService {
                 seatIds.size(), showtimeId, reason, updatedCount);
 
         // 4. Trả về phản hồi
-        return seatIds.stream()
+        List<SeatLockResponse> responses = seatIds.stream()
                 .map(seatId -> buildLockResponse(showtimeId, seatId, "AVAILABLE", 0))
                 .toList();
+        seatUpdateBroadcaster.publish(showtimeId, responses);
+        return responses;
     }
 
-    private static final String BOOKING_MAPPING_KEY_PREFIX = "booking_seat_map:"; // Giữ nguyên
+    // Hash lockId -> bookingId cho mỗi ghế
+    private static final String BOOKING_MAPPING_KEY_PREFIX = "booking_seat_map:";
 
+    /**
+     * Xử lý gộp các lần khóa ghế hết hạn của cùng 1 suất chiếu:
+     * 1 lần cập nhật DB, 1 frame WebSocket và 1 SeatUnlockedEvent cho mỗi booking.
+     * Ghế đã được khóa lại bởi lần khóa khác thì giữ nguyên trạng thái, chỉ báo cho booking của lần khóa cũ.
+     *
+     * @param lockIds lockId của từng ghế theo thứ tự seatIds
+     */
     @Transactional
-    public void handleExpiredLock(UUID showtimeId, UUID seatId) {
-
-        int updatedCount = showtimeSeatRepository.bulkUpdateSeatStatus(
-                showtimeId,
-                Collections.singletonList(seatId), // Chỉ là 1 ghế
-                ShowtimeSeat.SeatStatus.AVAILABLE,
-                LocalDateTime.now());
-
-        log.info("EXPIRED: Seat {} of showtime {} status reset to AVAILABLE. DB updated: {}",
-                seatId, showtimeId, updatedCount);
-
-        SeatLockResponse response = buildLockResponse(showtimeId, seatId, "AVAILABLE", 0);
-        webSocketHandler.broadcastToShowtime(showtimeId, response);
-
-        // 2. Xây dựng key mapping để lấy Booking ID
-        String mappingKey = BOOKING_MAPPING_KEY_PREFIX + showtimeId.toString() + ":" + seatId.toString();
-
-        // 3. Lấy Booking ID từ Redis (Key này đã được đảm bảo tồn tại lâu hơn lockKey
-        // chính)
-        String bookingIdStr = redisTemplate.opsForValue().get(mappingKey);
+    public void handleExpiredLocks(UUID showtimeId, List<UUID> seatIds, List<String> lockIds) {
+        if (seatIds.isEmpty()) {
+            return;
+        }
 
-        if (bookingIdStr != null) {
+        // 1. Ghế bị khóa lại + booking đã map của từng lần khóa, trong 1 lần gọi
+        List<String> keys = new ArrayList<>(seatIds.size() * 2);
+        for (UUID seatId : seatIds) {
+            keys.add(key(showtimeId, seatId));
+            keys.add(mappingKey(showtimeId, seatId));
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> taken = redisTemplate.execute(readExpiredMappingsScript, keys, lockIds.toArray());
+
+        List<UUID> releasedSeats = new ArrayList<>();
+        Map<UUID, List<UUID>> seatsByBooking = new LinkedHashMap<>();
+        List<String> foundMappingKeys = new ArrayList<>();
+        List<String> foundLockIds = new ArrayList<>();
+        for (int i = 0; i < seatIds.size(); i++) {
+            UUID seatId = seatIds.get(i);
+            boolean relocked = taken != null && Long.valueOf(1L).equals(taken.get(i * 2));
+            String bookingIdStr = taken != null ? (String) taken.get(i * 2 + 1) : "";
+            if (!relocked) {
+                releasedSeats.add(seatId);
+            }
+            if (bookingIdStr == null || bookingIdStr.isEmpty()) {
+                log.debug("Key mapping not found for expired seat lock of seat {} (seat was not mapped to a booking).",
+                        seatId);
+                continue;
+            }
+            foundMappingKeys.add(mappingKey(showtimeId, seatId));
+            foundLockIds.add(lockIds.get(i));
             try {
-                UUID bookingId = UUID.fromString(bookingIdStr);
-
-                // 4. Gửi sự kiện SeatUnlockedEvent cho Booking Service
-                log.warn("TTL EXPIRED: Found mapping for Booking {}. Sending SeatUnlockedEvent.",
-                        bookingId);
+                seatsByBooking.computeIfAbsent(UUID.fromString(bookingIdStr), k -> new ArrayList<>()).add(seatId);
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid UUID format stored in Redis mapping of seat {}: {}", seatId, bookingIdStr, e);
+            }
+        }
 
-                // Tạo Event với thông tin của bạn
-                SeatUnlockedEvent event = new SeatUnlockedEvent(
-                        bookingId,
-                        showtimeId,
-                        Collections.singletonList(seatId),
-                        "SEAT_LOCK_EXPIRED");
+        // 2. Đưa ghế chưa bị khóa lại về AVAILABLE
+        if (!releasedSeats.isEmpty()) {
+            int updatedCount = seatStatusPersistenceService.writeTransient(
+                    showtimeId,
+                    releasedSeats,
+                    ShowtimeSeat.SeatStatus.AVAILABLE);
+            seatMapCacheService.updateSeatStates(showtimeId, releasedSeats, ShowtimeSeat.SeatStatus.AVAILABLE);
+
+            log.info("EXPIRED: {} seats of showtime {} status reset to AVAILABLE. DB updated: {}",
+                    releasedSeats.size(), showtimeId, updatedCount);
+
+            List<SeatLockResponse> responses = releasedSeats.stream()
+                    .map(seatId -> buildLockResponse(showtimeId, seatId, "AVAILABLE", 0))
+                    .toList();
+            seatUpdateBroadcaster.publish(showtimeId, responses);
+        }
+        if (releasedSeats.size() < seatIds.size()) {
+            log.info("EXPIRED: {} seats of showtime {} were re-locked before their old lock was processed.",
+                    seatIds.size() - releasedSeats.size(), showtimeId);
+        }
 
-                showtimeProducer.sendSeatUnlockedEvent(event);
+        // 3. Gửi 1 SeatUnlockedEvent cho mỗi booking
+        seatsByBooking.forEach((bookingId, bookingSeatIds) -> {
+            log.warn("TTL EXPIRED: Found mapping for Booking {} ({} seats). Sending SeatUnlockedEvent.",
+                    bookingId, bookingSeatIds.size());
 
-                // 5. Xóa key mapping để dọn dẹp Redis
+            SeatUnlockedEvent event = new SeatUnlockedEvent(
+                    bookingId,
+                    showtimeId,
+                    bookingSeatIds,
+                    "SEAT_LOCK_EXPIRED");
 
-                redisTemplate.delete(mappingKey);
+            showtimeProducer.sendSeatUnlockedEvent(event);
+        });
 
-            } catch (IllegalArgumentException e) {
-                log.error("Invalid UUID format stored in Redis for key: {}", mappingKey, e);
-            }
-        } else {
-            log.warn("Key mapping not found for expired seat lock: {} (Lock was likely handled by another event).",
-                    mappingKey);
+        // 4. Xóa mapping đã xử lý để dọn dẹp Redis
+        if (!foundMappingKeys.isEmpty()) {
+            redisTemplate.execute(deleteMappingsScript, foundMappingKeys, foundLockIds.toArray());
         }
     }
 
@@ -556,33 +743,100 @@ public class SeatLockService {
 
     @Transactional
     public void extendLockForPayment(UUID showtimeId, List<UUID> seatIds, UUID userId, UUID guestSessionId) {
+        // Extend TTL to 10 minutes (600 seconds) without ownership check
+        // This is safe because the endpoint requires internal authentication
+        long newExpireAt = System.currentTimeMillis() + PAYMENT_LOCK_TIMEOUT * 1000L;
+
+        List<String> keys = new ArrayList<>(seatIds.size() * 2 + 1);
+        keys.add(deadlineTracker.deadlineKey(showtimeId));
         for (UUID seatId : seatIds) {
-            String key = key(showtimeId, seatId);
-            String value = redisTemplate.opsForValue().get(key);
+            keys.add(key(showtimeId, seatId));
+            keys.add(mappingKey(showtimeId, seatId));
+        }
 
-            if (value == null) {
-                log.warn("Seat {} is not locked. Cannot extend. Seat may have been released.", seatId);
-                throw new IllegalSeatLockException("Seat " + seatId + " is not locked. Cannot extend.");
-            }
+        @SuppressWarnings("unchecked")
+        List<Long> results = seatLockMetrics.timeRedis("extend", () -> redisTemplate.execute(
+                extendLocksScript, keys, String.valueOf(PAYMENT_LOCK_TIMEOUT), String.valueOf(newExpireAt),
+                String.valueOf(BOOKING_MAPPING_EXTRA_TTL)));
 
-            // Parse current lock to get owner info
-            String[] parts = value.split("\\|");
-            if (parts.length < 2) {
-                throw new IllegalSeatLockException("Invalid lock format for seat " + seatId);
+        List<UUID> missingSeats = new ArrayList<>();
+        for (int i = 0; i < seatIds.size(); i++) {
+            if (results == null || results.get(i) != 1L) {
+                missingSeats.add(seatIds.get(i));
             }
+        }
 
-            String currentOwnerType = parts[0];
-            String currentOwnerIdentifier = parts[1];
+        if (!missingSeats.isEmpty()) {
+            log.warn("Seats {} of showtime {} are not locked. No lock was extended.", missingSeats, showtimeId);
+            throw new IllegalSeatLockException("Seats " + missingSeats + " are not locked. Cannot extend.");
+        }
 
-            // Extend TTL to 10 minutes (600 seconds) without ownership check
-            // This is safe because the endpoint requires internal authentication
-            long newExpireAt = System.currentTimeMillis() + 600_000L; // 10 minutes
-            String newValue = currentOwnerType + "|" + currentOwnerIdentifier + "|" + newExpireAt;
+        log.info("Extended locks of {} seats in showtime {} to {}s for payment processing",
+                seatIds.size(), showtimeId, PAYMENT_LOCK_TIMEOUT);
+    }
 
-            redisTemplate.opsForValue().set(key, newValue, 600, TimeUnit.SECONDS);
-            log.info("Extended lock for seat {} (owner: {}/{}) to 10 minutes for payment processing",
-                    seatId, currentOwnerType, currentOwnerIdentifier);
+    /**
+     * Chạy LOCK_SEATS_SCRIPT và ánh xạ các key bị xung đột về seatId.
+     */
+    private List<UUID> lockAllOrNothing(UUID showtimeId, List<String> keys, List<UUID> seatIds,
+            SeatLockRecord lock) {
+        List<String> scriptKeys = new ArrayList<>(keys.size() + 1);
+        scriptKeys.add(deadlineTracker.deadlineKey(showtimeId));
+        scriptKeys.addAll(keys);
+
+        @SuppressWarnings("unchecked")
+        List<String> conflictedKeys = seatLockMetrics.timeRedis("lock", () -> redisTemplate.execute(
+                lockSeatsScript,
+                scriptKeys,
+                SeatLockRecord.VERSION,
+                lock.ownerType(),
+                lock.ownerId(),
+                String.valueOf(lockTimeout),
+                String.valueOf(lock.expireAt()),
+                UUID.randomUUID().toString()));
+
+        if (conflictedKeys == null || conflictedKeys.isEmpty()) {
+            return Collections.emptyList();
         }
+
+        List<UUID> conflictedSeats = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (conflictedKeys.contains(keys.get(i))) {
+                conflictedSeats.add(seatIds.get(i));
+            }
+        }
+        return conflictedSeats;
+    }
+
+    private void requireAdmission(String operation, UUID showtimeId, UUID userId, UUID guestSessionId,
+            int seatCount) {
+        try {
+            admissionControlService.requirePass(showtimeId, userId, guestSessionId);
+        } catch (AdmissionRequiredException e) {
+            seatLockMetrics.recordAttempt(operation, SeatLockMetrics.OUTCOME_REJECTED, seatCount);
+            throw e;
+        }
+    }
+
+    private IllegalSeatLockException unavailable(String operation, int seatCount, String message) {
+        seatLockMetrics.recordAttempt(operation, SeatLockMetrics.OUTCOME_UNAVAILABLE, seatCount);
+        return new IllegalSeatLockException(message);
+    }
+
+    /**
+     * Chạy UNLOCK_OWNED_SCRIPT, trả về mã kết quả theo thứ tự keys.
+     */
+    private List<Long> unlockOwned(UUID showtimeId, List<String> keys, UUID userId, UUID guestSessionId) {
+        String[] owner = SeatLockRecord.owner(userId, guestSessionId);
+
+        List<String> scriptKeys = new ArrayList<>(keys.size() + 1);
+        scriptKeys.add(deadlineTracker.deadlineKey(showtimeId));
+        scriptKeys.addAll(keys);
+
+        @SuppressWarnings("unchecked")
+        List<Long> results = seatLockMetrics.timeRedis("unlock", () -> redisTemplate.execute(
+                unlockOwnedScript, scriptKeys, owner[0], owner[1]));
+        return results != null ? results : Collections.nCopies(keys.size(), UNLOCK_NOT_OWNER);
     }
 
     private void deleteRedisLocks(UUID showtimeId, List<UUID> seatIds) {
@@ -590,7 +844,7 @@ public class SeatLockService {
                 .map(seatId -> key(showtimeId, seatId))
                 .toList();
 
-        Long deletedCount = redisTemplate.delete(keys);
+        long deletedCount = deadlineTracker.release(showtimeId, keys);
         log.debug("Deleted {} Redis lock keys for showtime {}.", deletedCount, showtimeId);
     }
 
@@ -600,7 +854,11 @@ public class SeatLockService {
     }
 
     private String key(UUID showtimeId, UUID seatId) {
-        return "seat:" + showtimeId + ":" + seatId;
+        return SeatLockRecord.key(showtimeId, seatId);
+    }
+
+    private String mappingKey(UUID showtimeId, UUID seatId) {
+        return BOOKING_MAPPING_KEY_PREFIX + showtimeId + ":" + seatId;
     }
 
     private SeatLockResponse buildLockResponse(UUID showtimeId, UUID seatId, String status, long ttl) {
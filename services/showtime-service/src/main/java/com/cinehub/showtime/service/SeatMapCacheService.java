@@ -0,0 +1,300 @@
+package com.cinehub.showtime.service;
+
+import com.cinehub.showtime.dto.response.ShowtimeSeatResponse;
+import com.cinehub.showtime.dto.response.ShowtimeSeatsLayoutResponse;
+import com.cinehub.showtime.entity.ShowtimeSeat.SeatStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Cache sơ đồ ghế theo suất chiếu trên Redis.
+ * - seatmap:layout:{showtimeId}: JSON layout tĩnh (số ghế, loại ghế, thứ tự)
+ * - seatmap:index:{showtimeId}: hash seatId -> vị trí ghế trong layout
+ * - seatmap:state:{showtimeId}: BITFIELD 2 bit/ghế (0 AVAILABLE, 1 LOCKED, 2 BOOKED)
+ * - seatmap:version:{showtimeId}: tăng mỗi lần trạng thái ghế đổi hoặc cache bị xóa
+ * Dựng cache từ DB (cache-aside) chỉ ghi khi version không đổi kể từ trước lúc đọc DB và state chưa tồn tại,
+ * nên 1 thay đổi xảy ra giữa lúc đọc và lúc ghi không bị mất. Cập nhật/xóa chạy sau khi transaction commit
+ * để rollback không làm sai cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatMapCacheService {
+
+    private static final String LAYOUT_KEY_PREFIX = "seatmap:layout:";
+    private static final String INDEX_KEY_PREFIX = "seatmap:index:";
+    private static final String STATE_KEY_PREFIX = "seatmap:state:";
+    private static final String VERSION_KEY_PREFIX = "seatmap:version:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${seatmap.cache.ttl:21600}")
+    private long cacheTtl;
+
+    /**
+     * Cập nhật trạng thái nhiều ghế trong 1 lần gọi. Luôn tăng version để lần dựng cache đang chạy bị hủy.
+     * Không sửa state nếu sơ đồ ghế chưa được cache (sẽ được dựng lại từ DB ở lần đọc sau).
+     * KEYS[1]: state key, KEYS[2]: index key, KEYS[3]: version key, ARGV[1]: mã trạng thái, ARGV[2]: TTL,
+     * ARGV[3..]: seatId
+     */
+    private static final String UPDATE_STATES_SCRIPT = """
+            redis.call('INCR', KEYS[3])
+            redis.call('EXPIRE', KEYS[3], ARGV[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            local indexes = redis.call('HMGET', KEYS[2], unpack(ARGV, 3))
+            local updated = 0
+            for i = 1, #indexes do
+                if indexes[i] then
+                    redis.call('BITFIELD', KEYS[1], 'SET', 'u2', '#' .. indexes[i], ARGV[1])
+                    updated = updated + 1
+                end
+            end
+            return updated
+            """;
+
+    /**
+     * Dựng cache nếu version vẫn là giá trị đọc được trước khi truy vấn DB và state chưa có (SET NX).
+     * KEYS[1]: version, KEYS[2]: layout, KEYS[3]: index, KEYS[4]: state
+     * ARGV[1]: version mong đợi, ARGV[2]: TTL, ARGV[3]: layout JSON, ARGV[4]: state bytes, ARGV[5..]: seatId, vị trí
+     */
+    private static final String FILL_SCRIPT = """
+            local current = redis.call('GET', KEYS[1]) or '0'
+            if current ~= ARGV[1] or redis.call('EXISTS', KEYS[4]) == 1 then
+                return 0
+            end
+            redis.call('DEL', KEYS[3])
+            if #ARGV > 4 then
+                redis.call('HSET', KEYS[3], unpack(ARGV, 5))
+            end
+            redis.call('EXPIRE', KEYS[3], ARGV[2])
+            redis.call('SET', KEYS[2], ARGV[3], 'EX', ARGV[2])
+            -- State ghi cuối cùng: chỉ khi state tồn tại thì các cập nhật trạng thái mới có hiệu lực
+            redis.call('SET', KEYS[4], ARGV[4], 'EX', ARGV[2])
+            return 1
+            """;
+
+    private static final byte[] FILL_SCRIPT_BYTES = bytes(FILL_SCRIPT);
+
+    private final DefaultRedisScript<Long> updateStatesScript = new DefaultRedisScript<>(UPDATE_STATES_SCRIPT,
+            Long.class);
+
+    public Optional<ShowtimeSeatsLayoutResponse> getSeatMap(UUID showtimeId) {
+        byte[] layoutKey = bytes(LAYOUT_KEY_PREFIX + showtimeId);
+        byte[] stateKey = bytes(STATE_KEY_PREFIX + showtimeId);
+
+        // Layout + state trong 1 round trip, đọc raw bytes để giữ nguyên bitfield
+        List<byte[]> values = redisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(layoutKey, stateKey));
+
+        if (values == null || values.size() < 2 || values.get(0) == null || values.get(1) == null
+                || values.get(1).length == 0) {
+            return Optional.empty();
+        }
+
+        try {
+            ShowtimeSeatsLayoutResponse layout = objectMapper.readValue(values.get(0),
+                    ShowtimeSeatsLayoutResponse.class);
+            byte[] states = values.get(1);
+
+            List<ShowtimeSeatResponse> seats = layout.getSeats();
+            for (int i = 0; i < seats.size(); i++) {
+                seats.get(i).setStatus(decode(states, i));
+            }
+            return Optional.of(layout);
+        } catch (Exception e) {
+            log.warn("Failed to read cached seat map for showtime {}: {}", showtimeId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Version hiện tại, đọc TRƯỚC khi truy vấn DB và truyền lại cho {@link #cacheSeatMap}.
+     */
+    public String currentVersion(UUID showtimeId) {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + showtimeId);
+        return version != null ? version : "0";
+    }
+
+    /**
+     * Ghi sơ đồ ghế đọc từ DB. Bỏ qua nếu đã có thay đổi từ lúc đọc version (dữ liệu có thể cũ)
+     * hoặc suất chiếu chưa có ghế.
+     */
+    public void cacheSeatMap(UUID showtimeId, ShowtimeSeatsLayoutResponse layout, String expectedVersion) {
+        List<ShowtimeSeatResponse> seats = layout.getSeats();
+        if (seats == null || seats.isEmpty()) {
+            return;
+        }
+
+        byte[] states = new byte[(seats.size() * 2 + 7) / 8];
+        List<byte[]> indexArgs = new ArrayList<>(seats.size() * 2);
+        List<ShowtimeSeatResponse> staticSeats = new ArrayList<>();
+
+        for (int i = 0; i < seats.size(); i++) {
+            ShowtimeSeatResponse seat = seats.get(i);
+            encode(states, i, seat.getStatus());
+            indexArgs.add(bytes(seat.getSeatId().toString()));
+            indexArgs.add(bytes(String.valueOf(i)));
+            staticSeats.add(ShowtimeSeatResponse.builder()
+                    .seatId(seat.getSeatId())
+                    .seatNumber(seat.getSeatNumber())
+                    .type(seat.getType())
+                    .build());
+        }
+
+        try {
+            byte[] layoutJson = objectMapper.writeValueAsBytes(ShowtimeSeatsLayoutResponse.builder()
+                    .totalSeats(layout.getTotalSeats())
+                    .totalRows(layout.getTotalRows())
+                    .totalColumns(layout.getTotalColumns())
+                    .seats(staticSeats)
+                    .build());
+
+            List<byte[]> keysAndArgs = new ArrayList<>(8 + indexArgs.size());
+            keysAndArgs.add(bytes(VERSION_KEY_PREFIX + showtimeId));
+            keysAndArgs.add(bytes(LAYOUT_KEY_PREFIX + showtimeId));
+            keysAndArgs.add(bytes(INDEX_KEY_PREFIX + showtimeId));
+            keysAndArgs.add(bytes(STATE_KEY_PREFIX + showtimeId));
+            keysAndArgs.add(bytes(expectedVersion));
+            keysAndArgs.add(bytes(String.valueOf(cacheTtl)));
+            keysAndArgs.add(layoutJson);
+            keysAndArgs.add(states);
+            keysAndArgs.addAll(indexArgs);
+
+            // Raw bytes qua connection để giữ nguyên bitfield (StringRedisTemplate sẽ mã hóa lại thành UTF-8)
+            Long filled = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                    .eval(FILL_SCRIPT_BYTES, ReturnType.INTEGER, 4, keysAndArgs.toArray(new byte[0][])));
+            if (filled == null || filled == 0) {
+                log.debug("Skipped caching seat map for showtime {}: changed while loading", showtimeId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to cache seat map for showtime {}: {}", showtimeId, e.getMessage());
+        }
+    }
+
+    public void updateSeatStates(UUID showtimeId, List<UUID> seatIds, SeatStatus status) {
+        if (seatIds == null || seatIds.isEmpty()) {
+            return;
+        }
+
+        Object[] args = new Object[seatIds.size() + 2];
+        args[0] = String.valueOf(code(status));
+        args[1] = String.valueOf(cacheTtl);
+        for (int i = 0; i < seatIds.size(); i++) {
+            args[i + 2] = seatIds.get(i).toString();
+        }
+
+        afterCommit(() -> {
+            try {
+                redisTemplate.execute(
+                        updateStatesScript,
+                        List.of(STATE_KEY_PREFIX + showtimeId, INDEX_KEY_PREFIX + showtimeId,
+                                VERSION_KEY_PREFIX + showtimeId),
+                        args);
+            } catch (Exception e) {
+                // Trạng thái cache không còn tin cậy -> xóa để lần đọc sau dựng lại từ DB
+                log.warn("Failed to update seat map state for showtime {}: {}", showtimeId, e.getMessage());
+                deleteSeatMaps(List.of(showtimeId));
+            }
+        });
+    }
+
+    public void evict(UUID showtimeId) {
+        evictAll(List.of(showtimeId));
+    }
+
+    /**
+     * Xóa sơ đồ ghế của nhiều suất chiếu (1 pipeline) sau khi transaction hiện tại commit.
+     */
+    public void evictAll(Collection<UUID> showtimeIds) {
+        if (showtimeIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(showtimeIds);
+        afterCommit(() -> deleteSeatMaps(ids));
+    }
+
+    // Tăng version để các lần dựng cache đang đọc DB không ghi lại dữ liệu cũ
+    private void deleteSeatMaps(List<UUID> showtimeIds) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (UUID showtimeId : showtimeIds) {
+                connection.keyCommands().del(
+                        bytes(LAYOUT_KEY_PREFIX + showtimeId),
+                        bytes(INDEX_KEY_PREFIX + showtimeId),
+                        bytes(STATE_KEY_PREFIX + showtimeId));
+                byte[] versionKey = bytes(VERSION_KEY_PREFIX + showtimeId);
+                connection.stringCommands().incr(versionKey);
+                connection.keyCommands().expire(versionKey, cacheTtl);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Chạy sau khi transaction hiện tại commit (bỏ qua nếu rollback); chạy ngay nếu không có transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static SeatStatus decode(byte[] states, int index) {
+        int bit = index * 2;
+        int byteIndex = bit / 8;
+        if (byteIndex >= states.length) {
+            return SeatStatus.AVAILABLE;
+        }
+        int value = (states[byteIndex] >> (6 - bit % 8)) & 0b11;
+        return switch (value) {
+            case 1 -> SeatStatus.LOCKED;
+            case 2 -> SeatStatus.BOOKED;
+            default -> SeatStatus.AVAILABLE;
+        };
+    }
+
+    private static void encode(byte[] states, int index, SeatStatus status) {
+        int bit = index * 2;
+        states[bit / 8] |= (byte) (code(status) << (6 - bit % 8));
+    }
+
+    private static int code(SeatStatus status) {
+        if (status == null) {
+            return 0;
+        }
+        return switch (status) {
+            case AVAILABLE -> 0;
+            case LOCKED -> 1;
+            case BOOKED -> 2;
+        };
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,191 @@
+package com.cinehub.showtime.service;
+
+import com.cinehub.showtime.entity.ShowtimeSeat.SeatStatus;
+import com.cinehub.showtime.repository.ShowtimeSeatRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ghi trạng thái ghế xuống Postgres.
+ * Khi bật write-behind, các chuyển trạng thái tạm thời (LOCKED/AVAILABLE) được
+ * đưa vào hàng đợi, gộp theo ghế (chỉ giữ trạng thái mới nhất) và ghi theo lô
+ * bởi flusher chạy nền. Redis vẫn là nguồn sự thật cho khóa ghế.
+ *
+ * Hàng đợi nằm trong bộ nhớ của từng instance, nên thứ tự chỉ được đảm bảo trong 1 instance.
+ * Giữa các instance, mỗi lần ghi mang theo thời điểm chuyển trạng thái và chỉ ghi đè dòng có
+ * updated_at không mới hơn (xem {@link ShowtimeSeatRepository#bulkUpdateTransientSeatStatus}),
+ * nên LOCKED cũ flush muộn không đè lên trạng thái mới hơn; điều này dựa vào đồng hồ các instance
+ * được đồng bộ (NTP). Chuyển trạng thái chưa flush sẽ mất nếu instance chết đột ngột.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SeatStatusPersistenceService {
+
+    private final ShowtimeSeatRepository showtimeSeatRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${seat.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+
+    @Value("${seat.write-behind.batch-size:500}")
+    private int batchSize;
+
+    private final Map<SeatKey, PendingStatus> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("seat.write_behind.pending", pending, Map::size)
+                .description("Seat status transitions waiting to be flushed to Postgres")
+                .register(meterRegistry);
+        Gauge.builder("seat.write_behind.lag", this, SeatStatusPersistenceService::oldestPendingAgeMillis)
+                .description("Age of the oldest unflushed seat status transition")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+
+    /**
+     * Ghi chuyển trạng thái tạm thời (LOCKED/AVAILABLE do khóa ghế).
+     * Trả về số dòng đã cập nhật nếu ghi đồng bộ, hoặc số ghế đã đưa vào hàng đợi.
+     */
+    public int writeTransient(UUID showtimeId, List<UUID> seatIds, SeatStatus status) {
+        if (status == SeatStatus.BOOKED) {
+            return writeNow(showtimeId, seatIds, status);
+        }
+        if (!writeBehindEnabled) {
+            return showtimeSeatRepository.bulkUpdateTransientSeatStatus(showtimeId, seatIds, status,
+                    LocalDateTime.now());
+        }
+
+        // Ghi xuống DB với thời điểm chuyển trạng thái chứ không phải thời điểm flush
+        LocalDateTime changedAt = LocalDateTime.now();
+        long now = System.currentTimeMillis();
+        for (UUID seatId : seatIds) {
+            // Giữ thời điểm enqueue sớm nhất để đo lag, trạng thái lấy bản mới nhất
+            pending.merge(new SeatKey(showtimeId, seatId), new PendingStatus(status, changedAt, now),
+                    (previous, latest) -> new PendingStatus(latest.status(), latest.changedAt(),
+                            previous.enqueuedAt()));
+        }
+        return seatIds.size();
+    }
+
+    /**
+     * Ghi đồng bộ, bỏ các chuyển trạng thái đang chờ của cùng ghế để bản ghi này là mới nhất.
+     */
+    public int writeNow(UUID showtimeId, List<UUID> seatIds, SeatStatus status) {
+        if (!pending.isEmpty()) {
+            seatIds.forEach(seatId -> pending.remove(new SeatKey(showtimeId, seatId)));
+        }
+        return showtimeSeatRepository.bulkUpdateSeatStatus(showtimeId, seatIds, status, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${seat.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        if (!pending.isEmpty()) {
+            flushMatching(null);
+        }
+    }
+
+    /**
+     * Flush các chuyển trạng thái đang chờ của 1 suất chiếu (trước khi đọc trạng thái từ DB).
+     */
+    public void flush(UUID showtimeId) {
+        if (!pending.isEmpty()) {
+            flushMatching(showtimeId);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (!pending.isEmpty()) {
+            log.info("WRITE-BEHIND: Flushing {} pending seat transitions before shutdown", pending.size());
+            flushMatching(null);
+        }
+    }
+
+    private synchronized void flushMatching(UUID showtimeId) {
+        // Gộp theo (suất chiếu, trạng thái, thời điểm chuyển); ghế của cùng 1 lần khóa chung 1 thời điểm
+        Map<FlushGroup, List<UUID>> groups = new HashMap<>();
+        Map<SeatKey, PendingStatus> drained = new HashMap<>();
+
+        for (Map.Entry<SeatKey, PendingStatus> entry : pending.entrySet()) {
+            SeatKey key = entry.getKey();
+            if (showtimeId != null && !showtimeId.equals(key.showtimeId())) {
+                continue;
+            }
+            // remove(key, value) để không làm mất chuyển trạng thái mới vừa được merge vào
+            if (pending.remove(key, entry.getValue())) {
+                drained.put(key, entry.getValue());
+                PendingStatus status = entry.getValue();
+                groups.computeIfAbsent(new FlushGroup(key.showtimeId(), status.status(), status.changedAt()),
+                        k -> new ArrayList<>())
+                        .add(key.seatId());
+            }
+        }
+
+        int written = 0;
+        for (Map.Entry<FlushGroup, List<UUID>> entry : groups.entrySet()) {
+            FlushGroup group = entry.getKey();
+            List<UUID> seatIds = entry.getValue();
+            for (int from = 0; from < seatIds.size(); from += batchSize) {
+                List<UUID> batch = seatIds.subList(from, Math.min(from + batchSize, seatIds.size()));
+                try {
+                    written += showtimeSeatRepository.bulkUpdateTransientSeatStatus(
+                            group.showtimeId(), batch, group.status(), group.changedAt());
+                } catch (Exception e) {
+                    log.error("WRITE-BEHIND: Failed to flush {} seats of showtime {}: {}",
+                            batch.size(), group.showtimeId(), e.getMessage());
+                    requeue(group.showtimeId(), batch, drained);
+                }
+            }
+        }
+
+        if (!drained.isEmpty()) {
+            log.debug("WRITE-BEHIND: Flushed {} seat transitions, {} rows updated", drained.size(), written);
+        }
+    }
+
+    private void requeue(UUID showtimeId, List<UUID> seatIds, Map<SeatKey, PendingStatus> drained) {
+        for (UUID seatId : seatIds) {
+            SeatKey key = new SeatKey(showtimeId, seatId);
+            // Không ghi đè nếu ghế đã có chuyển trạng thái mới hơn
+            pending.putIfAbsent(key, drained.get(key));
+        }
+    }
+
+    private double oldestPendingAgeMillis() {
+        OptionalLong oldest = pending.values().stream()
+                .mapToLong(PendingStatus::enqueuedAt)
+                .min();
+        return oldest.isPresent() ? System.currentTimeMillis() - oldest.getAsLong() : 0;
+    }
+
+    private record SeatKey(UUID showtimeId, UUID seatId) {
+    }
+
+    private record PendingStatus(SeatStatus status, LocalDateTime changedAt, long enqueuedAt) {
+    }
+
+    private record FlushGroup(UUID showtimeId, SeatStatus status, LocalDateTime changedAt) {
+    }
+}
@@ -3,33 +3,44 @@ package com.cinehub.showtime.service;
 import com.cinehub.showtime.dto.response.ShowtimeSeatResponse;
 import com.cinehub.showtime.dto.response.ShowtimeSeatsLayoutResponse;
 import com.cinehub.showtime.dto.request.UpdateSeatStatusRequest;
-import com.cinehub.showtime.entity.Seat;
 import com.cinehub.showtime.entity.Showtime;
 import com.cinehub.showtime.entity.ShowtimeSeat;
-import com.cinehub.showtime.entity.ShowtimeSeat.SeatStatus;
 import com.cinehub.showtime.entity.ShowtimeStatus;
-import com.cinehub.showtime.repository.SeatRepository;
 import com.cinehub.showtime.repository.ShowtimeRepository;
 import com.cinehub.showtime.repository.ShowtimeSeatRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ShowtimeSeatService {
 
         private final ShowtimeSeatRepository showtimeSeatRepository;
         private final ShowtimeRepository showtimeRepository;
-        private final SeatRepository seatRepository;
+        private final SeatMapCacheService seatMapCacheService;
+        private final SeatStatusPersistenceService seatStatusPersistenceService;
+
+        @Value("${seat.initialize.batch-size:500}")
+        private int initializeBatchSize;
 
         public ShowtimeSeatsLayoutResponse getSeatsByShowtime(UUID showtimeId) {
 
+                // Sơ đồ ghế đã cache trên Redis -> không cần truy vấn DB
+                Optional<ShowtimeSeatsLayoutResponse> cached = seatMapCacheService.getSeatMap(showtimeId);
+                if (cached.isPresent()) {
+                        return cached.get();
+                }
+
                 Showtime showtime = showtimeRepository.findById(showtimeId)
                                 .orElseThrow(() -> new RuntimeException("Showtime not found"));
 
@@ -37,6 +48,10 @@ public class ShowtimeSeatService {
                         throw new RuntimeException("Cannot get seats for a suspended showtime");
                 }
 
+                // Đảm bảo các chuyển trạng thái write-behind đã xuống DB trước khi dựng cache.
+                // Version đọc trước khi truy vấn DB: có thay đổi trong lúc đọc thì không ghi cache.
+                seatStatusPersistenceService.flush(showtimeId);
+                String cacheVersion = seatMapCacheService.currentVersion(showtimeId);
                 List<ShowtimeSeatResponse> seats = showtimeSeatRepository.findSeatResponsesByShowtimeId(showtimeId);
 
                 // Calculate layout metadata from seatNumber (format: A1, B5, etc.)
@@ -56,12 +71,17 @@ public class ShowtimeSeatService {
                                 .max()
                                 .orElse(0);
 
-                return ShowtimeSeatsLayoutResponse.builder()
+                ShowtimeSeatsLayoutResponse layout = ShowtimeSeatsLayoutResponse.builder()
                                 .totalSeats(totalSeats)
                                 .totalRows(maxRow)
                                 .totalColumns(maxColumn)
                                 .seats(seats)
                                 .build();
+
+                if (!seats.isEmpty()) {
+                        seatMapCacheService.cacheSeatMap(showtimeId, layout, cacheVersion);
+                }
+                return layout;
         }
 
         @Transactional
@@ -74,43 +94,30 @@ public class ShowtimeSeatService {
                 seat.setUpdatedAt(LocalDateTime.now());
 
                 ShowtimeSeat saved = showtimeSeatRepository.save(seat);
+                seatMapCacheService.updateSeatStates(request.getShowtimeId(), List.of(request.getSeatId()),
+                                request.getStatus());
                 return toResponse(saved);
         }
 
         @Transactional
         public int batchInitializeSeats(List<UUID> showtimeIds) {
-                int count = 0;
-                for (UUID showtimeId : showtimeIds) {
-                        try {
-                                initializeSeatsForShowtime(showtimeId);
-                                count++;
-                        } catch (Exception e) {
-                                // Log error nhưng tiếp tục với các showtime khác
-                                System.err.println("Failed to initialize seats for showtime " + showtimeId + ": "
-                                                + e.getMessage());
-                        }
+                if (showtimeIds.isEmpty()) {
+                        return 0;
                 }
-                return count;
+                List<UUID> existingIds = showtimeRepository.findExistingIds(showtimeIds);
+                int rows = insertSeats(existingIds);
+                log.info("Initialized {} seats for {} of {} requested showtimes", rows, existingIds.size(),
+                                showtimeIds.size());
+                return existingIds.size();
         }
 
         @Transactional
         public void initializeSeatsForShowtime(UUID showtimeId) {
-                Showtime showtime = showtimeRepository.findById(showtimeId)
-                                .orElseThrow(() -> new RuntimeException("Showtime not found"));
-
-                UUID roomId = showtime.getRoom().getId();
-                List<Seat> seats = seatRepository.findByRoomId(roomId);
-
-                List<ShowtimeSeat> showtimeSeats = seats.stream()
-                                .map(s -> ShowtimeSeat.builder()
-                                                .showtime(showtime)
-                                                .seat(s)
-                                                .status(SeatStatus.AVAILABLE)
-                                                .updatedAt(LocalDateTime.now())
-                                                .build())
-                                .toList();
+                if (!showtimeRepository.existsById(showtimeId)) {
+                        throw new RuntimeException("Showtime not found");
+                }
 
-                showtimeSeatRepository.saveAll(showtimeSeats);
+                insertSeats(List.of(showtimeId));
         }
 
         @Transactional
@@ -119,15 +126,28 @@ public class ShowtimeSeatService {
                 LocalDateTime end = endDate.plusDays(1).atStartOfDay();
 
                 // Lấy các suất chiếu chưa có ghế
-                List<Showtime> showtimes = showtimeRepository.findShowtimesWithoutSeats(start, end);
+                List<UUID> showtimeIds = showtimeRepository.findShowtimeIdsWithoutSeats(start, end);
+
+                int rows = insertSeats(showtimeIds);
+                log.info("Initialized {} seats for {} showtimes from {} to {}", rows, showtimeIds.size(), startDate,
+                                endDate);
+                return showtimeIds.size();
+        }
 
-                int count = 0;
-                for (Showtime showtime : showtimes) {
-                        // Gọi lại logic init ghế cho 1 showtime (hàm cũ của bạn)
-                        initializeSeatsForShowtime(showtime.getId());
-                        count++;
+        /**
+         * Mỗi lô suất chiếu là 1 câu INSERT ... SELECT từ bảng seat, không dựng entity ShowtimeSeat.
+         * Sơ đồ ghế của lô bị xóa khỏi cache để lần đọc sau thấy ghế mới. Trả về tổng số ghế đã ghi.
+         */
+        private int insertSeats(List<UUID> showtimeIds) {
+                int batchSize = Math.max(1, initializeBatchSize);
+                LocalDateTime now = LocalDateTime.now();
+                int rows = 0;
+                for (int from = 0; from < showtimeIds.size(); from += batchSize) {
+                        List<UUID> batch = showtimeIds.subList(from, Math.min(from + batchSize, showtimeIds.size()));
+                        rows += showtimeSeatRepository.insertSeatsForShowtimes(batch, now);
+                        seatMapCacheService.evictAll(batch);
                 }
-                return count;
+                return rows;
         }
 
         private ShowtimeSeatResponse toResponse(ShowtimeSeat seat) {
@@ -2,6 +2,7 @@ package com.cinehub.showtime.service;
 
 import com.cinehub.showtime.client.MovieServiceClient;
 import com.cinehub.showtime.client.MovieSummaryResponse;
+import com.cinehub.showtime.config.ShowtimeAutoGenerateConfig;
 import com.cinehub.showtime.dto.request.BatchShowtimeRequest;
 import com.cinehub.showtime.dto.request.ShowtimeRequest;
 import com.cinehub.showtime.dto.request.ValidateShowtimeRequest;
@@ -18,41 +19,58 @@ import com.cinehub.showtime.dto.response.TheaterShowtimesResponse;
 import com.cinehub.showtime.entity.Showtime;
 import com.cinehub.showtime.entity.Theater;
 import com.cinehub.showtime.entity.Room;
+import com.cinehub.showtime.exception.InvalidPageRequestException;
 import com.cinehub.showtime.repository.ShowtimeRepository;
 import com.cinehub.showtime.repository.ShowtimeRepositoryCustom;
 import com.cinehub.showtime.repository.TheaterRepository;
 import com.cinehub.showtime.repository.RoomRepository;
 import com.cinehub.showtime.mapper.ShowtimeMapper;
 import com.cinehub.showtime.dto.model.GenerationStats;
+import com.cinehub.showtime.dto.model.MovieScheduleRow;
+import com.cinehub.showtime.dto.model.ShowtimeCursor;
+import com.cinehub.showtime.dto.model.TimeSlot;
+import com.cinehub.showtime.service.ScheduleCacheService.ScheduleChange;
+import com.cinehub.showtime.service.ScheduleCacheService.ScheduleKey;
+import com.cinehub.showtime.helper.RoomScheduleIndex;
 import com.cinehub.showtime.helper.ShowtimeGenerationHelper;
+import com.cinehub.showtime.helper.WeightedMovieSampler;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ShowtimeService {
 
+        // count=estimate: đếm tối đa bấy nhiêu bản ghi ("ít nhất N")
+        private static final int ESTIMATE_COUNT_CAP = 1000;
+
         private final ShowtimeRepository showtimeRepository;
         private final TheaterRepository theaterRepository;
         private final RoomRepository roomRepository;
@@ -62,6 +80,10 @@ public class ShowtimeService {
 
         private final ShowtimeMapper showtimeMapper;
         private final ShowtimeGenerationHelper generationHelper;
+        private final ShowtimeAutoGenerateConfig autoGenerateConfig;
+        private final SeatMapCacheService seatMapCacheService;
+        private final ScheduleCacheService scheduleCacheService;
+        private final PlatformTransactionManager transactionManager;
 
         public ShowtimeResponse createShowtime(ShowtimeRequest request) {
                 Theater theater = theaterRepository.findById(request.getTheaterId())
@@ -81,6 +103,7 @@ public class ShowtimeService {
                                 .build();
 
                 Showtime saved = showtimeRepository.save(showtime);
+                scheduleCacheService.evict(saved);
 
                 // Cập nhật movie thành NOW_PLAYING nếu đang UPCOMING
                 try {
@@ -102,20 +125,27 @@ public class ShowtimeService {
 
                 checkOverlap(request.getRoomId(), request.getStartTime(), request.getEndTime(), id);
 
+                // Lịch cũ (phim/rạp/ngày trước khi sửa) cũng phải xóa khỏi cache
+                ScheduleChange before = ScheduleChange.of(showtime);
                 showtime.setMovieId(request.getMovieId());
                 showtime.setTheater(theater);
                 showtime.setRoom(room);
                 showtime.setStartTime(request.getStartTime());
                 showtime.setEndTime(request.getEndTime());
 
-                return showtimeMapper.toShowtimeResponse(showtimeRepository.save(showtime));
+                Showtime saved = showtimeRepository.save(showtime);
+                seatMapCacheService.evict(id);
+                scheduleCacheService.evict(List.of(before, ScheduleChange.of(saved)));
+                return showtimeMapper.toShowtimeResponse(saved);
         }
 
         public void deleteShowtime(UUID id) {
-                if (!showtimeRepository.existsById(id)) {
-                        throw new EntityNotFoundException("Showtime not found");
-                }
+                Showtime showtime = showtimeRepository.findById(id)
+                                .orElseThrow(() -> new EntityNotFoundException("Showtime not found"));
+                ScheduleChange change = ScheduleChange.of(showtime);
                 showtimeRepository.deleteById(id);
+                seatMapCacheService.evict(id);
+                scheduleCacheService.evict(List.of(change));
         }
 
         public ShowtimeResponse getShowtimeById(UUID id) {
@@ -145,45 +175,35 @@ public class ShowtimeService {
 
         public ShowtimesByMovieResponse getShowtimesByMovieGrouped(UUID movieId) {
                 LocalDate today = LocalDate.now();
+                return scheduleCacheService.get(ScheduleKey.movieSchedule(movieId, today, 5),
+                                () -> inReadOnlyTransaction(() -> loadShowtimesByMovieGrouped(movieId, today)));
+        }
+
+        private ShowtimesByMovieResponse loadShowtimesByMovieGrouped(UUID movieId, LocalDate today) {
                 List<LocalDate> targetDates = new ArrayList<>();
+                Map<LocalDate, Map<UUID, TheaterScheduleResponse>> groupedData = new LinkedHashMap<>();
                 for (int i = 0; i < 5; i++) {
                         targetDates.add(today.plusDays(i));
+                        groupedData.put(today.plusDays(i), new LinkedHashMap<>());
                 }
 
-                List<Showtime> allShowtimes = showtimeRepository.findByMovieId(movieId).stream()
-                                .filter(st -> !st.getStartTime().toLocalDate().isBefore(today))
-                                .collect(Collectors.toList());
-
-                List<Theater> allTheaters = theaterRepository.findAll();
-
-                Map<LocalDate, Map<UUID, List<Showtime>>> groupedData = allShowtimes.stream()
-                                .collect(Collectors.groupingBy(
-                                                st -> st.getStartTime().toLocalDate(),
-                                                Collectors.groupingBy(st -> st.getTheater().getId())));
+                // Chỉ đọc 5 ngày cần hiển thị dưới dạng projection, gom nhóm theo ngày -> rạp trong 1 lượt.
+                // Kết quả đã sắp theo rạp rồi giờ chiếu nên không cần sort lại.
+                try (Stream<MovieScheduleRow> rows = showtimeRepository.streamMovieSchedule(movieId,
+                                today.atStartOfDay(), today.plusDays(targetDates.size()).atStartOfDay())) {
+                        rows.forEach(row -> groupedData.get(row.startTime().toLocalDate())
+                                        .computeIfAbsent(row.theaterId(), theaterId -> TheaterScheduleResponse.builder()
+                                                        .theaterId(theaterId)
+                                                        .theaterName(row.theaterName())
+                                                        .theaterAddress(row.theaterAddress())
+                                                        .showtimes(new ArrayList<>())
+                                                        .build())
+                                        .getShowtimes()
+                                        .add(showtimeMapper.toShowtimeResponse(row)));
+                }
 
                 Map<LocalDate, List<TheaterScheduleResponse>> scheduleByDate = new LinkedHashMap<>();
-
-                for (LocalDate date : targetDates) {
-                        Map<UUID, List<Showtime>> showtimesOnDate = groupedData.getOrDefault(date, new HashMap<>());
-                        List<TheaterScheduleResponse> dailySchedules = allTheaters.stream()
-                                        .map(theater -> {
-                                                List<Showtime> theaterShowtimes = showtimesOnDate
-                                                                .getOrDefault(theater.getId(), new ArrayList<>());
-                                                List<ShowtimeResponse> showtimeDtos = theaterShowtimes.stream()
-                                                                .sorted(Comparator.comparing(Showtime::getStartTime))
-                                                                .map(showtimeMapper::toShowtimeResponse)
-                                                                .collect(Collectors.toList());
-
-                                                return TheaterScheduleResponse.builder()
-                                                                .theaterId(theater.getId())
-                                                                .theaterName(theater.getName())
-                                                                .theaterAddress(theater.getAddress())
-                                                                .showtimes(showtimeDtos)
-                                                                .build();
-                                        })
-                                        .collect(Collectors.toList());
-                        scheduleByDate.put(date, dailySchedules);
-                }
+                groupedData.forEach((date, theaters) -> scheduleByDate.put(date, new ArrayList<>(theaters.values())));
 
                 return ShowtimesByMovieResponse.builder()
                                 .availableDates(targetDates)
@@ -192,8 +212,27 @@ public class ShowtimeService {
         }
 
         public List<com.cinehub.showtime.dto.response.MovieShowtimesResponse> getMoviesByTheater(UUID theaterId) {
+                LocalDate today = LocalDate.now();
                 LocalDateTime now = LocalDateTime.now();
-                List<Showtime> showtimes = showtimeRepository.findByTheaterIdAndStartTimeAfter(theaterId, now);
+                List<com.cinehub.showtime.dto.response.MovieShowtimesResponse> cached = scheduleCacheService.get(
+                                ScheduleKey.theater(theaterId, today),
+                                () -> loadMoviesByTheater(theaterId, today.atStartOfDay()));
+
+                // Cache giữ lịch từ đầu ngày, lọc các suất đã bắt đầu khi đọc
+                return cached.stream()
+                                .map(movie -> com.cinehub.showtime.dto.response.MovieShowtimesResponse.builder()
+                                                .movieId(movie.getMovieId())
+                                                .showtimes(movie.getShowtimes().stream()
+                                                                .filter(s -> !s.getStartTime().isBefore(now))
+                                                                .toList())
+                                                .build())
+                                .filter(movie -> !movie.getShowtimes().isEmpty())
+                                .toList();
+        }
+
+        private List<com.cinehub.showtime.dto.response.MovieShowtimesResponse> loadMoviesByTheater(UUID theaterId,
+                        LocalDateTime from) {
+                List<Showtime> showtimes = showtimeRepository.findByTheaterIdAndStartTimeAfter(theaterId, from);
 
                 // Group by movieId
                 java.util.Map<UUID, List<Showtime>> showtimesByMovie = showtimes.stream()
@@ -227,8 +266,32 @@ public class ShowtimeService {
         }
 
         public List<TheaterShowtimesResponse> getTheaterShowtimesByMovieAndProvince(UUID movieId, UUID provinceId) {
+                LocalDate today = LocalDate.now();
                 LocalDateTime now = LocalDateTime.now();
-                List<Showtime> showtimes = showtimeRepository.findByMovieAndProvince(movieId, provinceId, now);
+                List<TheaterShowtimesResponse> cached = scheduleCacheService.get(
+                                ScheduleKey.movieInProvince(movieId, provinceId, today),
+                                () -> loadTheaterShowtimesByMovieAndProvince(movieId, provinceId, today.atStartOfDay()));
+
+                // Cache giữ lịch từ đầu ngày, lọc các suất đã bắt đầu khi đọc
+                return cached.stream()
+                                .map(theater -> TheaterShowtimesResponse.builder()
+                                                .theaterId(theater.getTheaterId())
+                                                .theaterName(theater.getTheaterName())
+                                                .theaterNameEn(theater.getTheaterNameEn())
+                                                .theaterAddress(theater.getTheaterAddress())
+                                                .theaterAddressEn(theater.getTheaterAddressEn())
+                                                .theaterImageUrl(theater.getTheaterImageUrl())
+                                                .showtimes(theater.getShowtimes().stream()
+                                                                .filter(s -> !s.getStartTime().isBefore(now))
+                                                                .toList())
+                                                .build())
+                                .filter(theater -> !theater.getShowtimes().isEmpty())
+                                .toList();
+        }
+
+        private List<TheaterShowtimesResponse> loadTheaterShowtimesByMovieAndProvince(UUID movieId, UUID provinceId,
+                        LocalDateTime from) {
+                List<Showtime> showtimes = showtimeRepository.findByMovieAndProvince(movieId, provinceId, from);
 
                 Map<UUID, List<Showtime>> showtimesByTheater = showtimes.stream()
                                 .collect(Collectors.groupingBy(s -> s.getTheater().getId()));
@@ -260,9 +323,38 @@ public class ShowtimeService {
 
         public List<MovieWithTheatersResponse> getMoviesWithTheatersByDate(
                         LocalDate date, UUID movieId, UUID theaterId) {
+                LocalDateTime now = LocalDateTime.now();
+                List<MovieWithTheatersResponse> cached = scheduleCacheService.get(
+                                ScheduleKey.date(date, movieId, theaterId),
+                                () -> loadMoviesWithTheatersByDate(date, movieId, theaterId));
+
+                // Filter only available showtimes (startTime > now) khi đọc, cache giữ cả ngày
+                return cached.stream()
+                                .map(movie -> MovieWithTheatersResponse.builder()
+                                                .movieId(movie.getMovieId())
+                                                .theaters(movie.getTheaters().stream()
+                                                                .map(theater -> MovieWithTheatersResponse.TheaterWithShowtimes
+                                                                                .builder()
+                                                                                .theaterId(theater.getTheaterId())
+                                                                                .theaterName(theater.getTheaterName())
+                                                                                .theaterNameEn(theater.getTheaterNameEn())
+                                                                                .theaterAddress(theater.getTheaterAddress())
+                                                                                .theaterAddressEn(theater.getTheaterAddressEn())
+                                                                                .showtimes(theater.getShowtimes().stream()
+                                                                                                .filter(s -> s.getStartTime().isAfter(now))
+                                                                                                .toList())
+                                                                                .build())
+                                                                .filter(theater -> !theater.getShowtimes().isEmpty())
+                                                                .toList())
+                                                .build())
+                                .filter(movie -> !movie.getTheaters().isEmpty())
+                                .toList();
+        }
+
+        private List<MovieWithTheatersResponse> loadMoviesWithTheatersByDate(
+                        LocalDate date, UUID movieId, UUID theaterId) {
                 LocalDateTime startOfDay = date.atStartOfDay();
                 LocalDateTime endOfDay = date.atTime(23, 59, 59);
-                LocalDateTime now = LocalDateTime.now();
 
                 // Query showtimes
                 List<Showtime> showtimes;
@@ -279,11 +371,6 @@ public class ShowtimeService {
                         showtimes = showtimeRepository.findByStartTimeBetween(startOfDay, endOfDay);
                 }
 
-                // Filter only available showtimes (startTime > now)
-                showtimes = showtimes.stream()
-                                .filter(s -> s.getStartTime().isAfter(now))
-                                .collect(Collectors.toList());
-
                 // Group by movieId
                 Map<UUID, List<Showtime>> showtimesByMovie = showtimes.stream()
                                 .collect(Collectors.groupingBy(Showtime::getMovieId));
@@ -344,10 +431,19 @@ public class ShowtimeService {
                                 .collect(Collectors.toList());
         }
 
+        /**
+         * Phân trang OFFSET. count: exact (COUNT đầy đủ), estimate (đếm tối đa ESTIMATE_COUNT_CAP bản ghi)
+         * hoặc none (không đếm, totalElements = totalPages = -1); xem {@link PagedResponse#isCountExact()}.
+         */
         public PagedResponse<ShowtimeDetailResponse> getAllAvailableShowtimes(
                         UUID provinceId, UUID theaterId, UUID roomId, UUID movieId, UUID showtimeId,
                         LocalDateTime startOfDay, LocalDateTime endOfDay,
-                        LocalTime fromTime, LocalTime toTime, int page, int size, String sortBy, String sortType) {
+                        LocalTime fromTime, LocalTime toTime, int page, int size, String sortBy, String sortType,
+                        String count) {
+                if (page < 1)
+                        throw new InvalidPageRequestException("Invalid page: " + page + " (must be >= 1)");
+                validatePageSize(size);
+                CountMode countMode = CountMode.parse(count);
 
                 Sort sort = Sort.unsorted();
                 if (sortBy != null && !sortBy.isEmpty()) {
@@ -359,53 +455,151 @@ public class ShowtimeService {
                 }
 
                 Pageable pageable = PageRequest.of(page - 1, size, sort);
-                Page<Showtime> showtimePage = showtimeRepositoryCustom.findAvailableShowtimesWithFiltersDynamic(
+                LocalDateTime now = LocalDateTime.now();
+                List<Showtime> showtimes = showtimeRepositoryCustom.findAvailableShowtimesPage(
                                 provinceId, theaterId, roomId, movieId, showtimeId, startOfDay,
-                                endOfDay, fromTime, toTime, LocalDateTime.now(), pageable);
-
-                List<ShowtimeDetailResponse> content = showtimePage.getContent().stream()
-                                .map(showtimeMapper::toShowtimeDetailResponse)
-                                .collect(Collectors.toList());
+                                endOfDay, fromTime, toTime, now, pageable);
+                PageCount pageCount = countShowtimes(countMode, provinceId, theaterId, roomId, movieId,
+                                showtimeId, startOfDay, endOfDay, fromTime, toTime, now);
 
                 return PagedResponse.<ShowtimeDetailResponse>builder()
-                                .data(content)
+                                .data(showtimeMapper.toShowtimeDetailResponses(showtimes))
                                 .page(page)
                                 .size(size)
-                                .totalElements(showtimePage.getTotalElements())
-                                .totalPages(showtimePage.getTotalPages())
+                                .totalElements(pageCount.totalElements())
+                                .totalPages(pageCount.totalPages(size))
+                                .countExact(pageCount.exact())
+                                .build();
+        }
+
+        /**
+         * Phân trang keyset theo (startTime, id) cho tìm kiếm admin và export: trang sâu có cùng chi phí
+         * như trang đầu. cursor rỗng là trang đầu, nextCursor = null khi đã hết; size phải >= 1.
+         * count: như {@link #getAllAvailableShowtimes}.
+         */
+        public PagedResponse<ShowtimeDetailResponse> getAvailableShowtimesByCursor(
+                        UUID provinceId, UUID theaterId, UUID roomId, UUID movieId, UUID showtimeId,
+                        LocalDateTime startOfDay, LocalDateTime endOfDay,
+                        LocalTime fromTime, LocalTime toTime, String cursor, int size, String count) {
+                validatePageSize(size);
+                CountMode countMode = CountMode.parse(count);
+                ShowtimeCursor after = ShowtimeCursor.decode(cursor);
+                LocalDateTime now = LocalDateTime.now();
+
+                // Lấy thêm 1 bản ghi để biết còn trang sau hay không
+                List<Showtime> showtimes = showtimeRepositoryCustom.findAvailableShowtimesAfter(
+                                provinceId, theaterId, roomId, movieId, showtimeId, startOfDay,
+                                endOfDay, fromTime, toTime, now, after, size + 1);
+                boolean hasNext = showtimes.size() > size;
+                if (hasNext) {
+                        showtimes = showtimes.subList(0, size);
+                }
+                String nextCursor = null;
+                if (hasNext) {
+                        Showtime last = showtimes.get(showtimes.size() - 1);
+                        nextCursor = new ShowtimeCursor(last.getStartTime(), last.getId()).encode();
+                }
+
+                PageCount pageCount = countShowtimes(countMode, provinceId, theaterId, roomId, movieId,
+                                showtimeId, startOfDay, endOfDay, fromTime, toTime, now);
+
+                return PagedResponse.<ShowtimeDetailResponse>builder()
+                                .data(showtimeMapper.toShowtimeDetailResponses(showtimes))
+                                .size(size)
+                                .totalElements(pageCount.totalElements())
+                                .totalPages(pageCount.totalPages(size))
+                                .countExact(pageCount.exact())
+                                .nextCursor(nextCursor)
                                 .build();
         }
 
+        private void validatePageSize(int size) {
+                if (size < 1)
+                        throw new InvalidPageRequestException("Invalid page size: " + size + " (must be >= 1)");
+        }
+
+        private PageCount countShowtimes(CountMode countMode, UUID provinceId, UUID theaterId, UUID roomId,
+                        UUID movieId, UUID showtimeId, LocalDateTime startOfDay, LocalDateTime endOfDay,
+                        LocalTime fromTime, LocalTime toTime, LocalDateTime now) {
+                return switch (countMode) {
+                        case NONE -> new PageCount(-1, false);
+                        case ESTIMATE -> {
+                                long capped = showtimeRepositoryCustom.countAvailableShowtimes(
+                                                provinceId, theaterId, roomId, movieId, showtimeId, startOfDay,
+                                                endOfDay, fromTime, toTime, now, ESTIMATE_COUNT_CAP);
+                                // Chạm giới hạn: chỉ biết "ít nhất capped"
+                                yield new PageCount(capped, capped < ESTIMATE_COUNT_CAP);
+                        }
+                        case EXACT -> new PageCount(showtimeRepositoryCustom.countAvailableShowtimes(
+                                        provinceId, theaterId, roomId, movieId, showtimeId, startOfDay,
+                                        endOfDay, fromTime, toTime, now, null), true);
+                };
+        }
+
+        private enum CountMode {
+                EXACT, ESTIMATE, NONE;
+
+                static CountMode parse(String count) {
+                        if (count == null)
+                                return EXACT;
+                        return switch (count.toLowerCase()) {
+                                case "exact" -> EXACT;
+                                case "estimate" -> ESTIMATE;
+                                case "none" -> NONE;
+                                default -> throw new InvalidPageRequestException(
+                                                "Invalid count: " + count + " (expected exact, estimate or none)");
+                        };
+                }
+        }
+
+        private record PageCount(long totalElements, boolean exact) {
+
+                int totalPages(int size) {
+                        return totalElements < 0 ? -1 : (int) ((totalElements + size - 1) / size);
+                }
+        }
+
         public BatchShowtimeResponse createShowtimesBatch(BatchShowtimeRequest request) {
-                List<ShowtimeResponse> createdShowtimes = new ArrayList<>();
+                List<ShowtimeRequest> requests = request.getShowtimes();
                 List<String> errors = new ArrayList<>();
-                List<ShowtimeRequest> pendingShowtimes = new ArrayList<>();
+
+                // Load rạp, phòng và lịch bận của mọi phòng liên quan 1 lần cho cả lô
+                Map<UUID, Theater> theaters = new HashMap<>();
+                theaterRepository.findAllById(requests.stream().map(ShowtimeRequest::getTheaterId)
+                                .filter(Objects::nonNull).distinct().toList())
+                                .forEach(theater -> theaters.put(theater.getId(), theater));
+                Map<UUID, Room> rooms = new HashMap<>();
+                roomRepository.findAllById(requests.stream().map(ShowtimeRequest::getRoomId)
+                                .filter(Objects::nonNull).distinct().toList())
+                                .forEach(room -> rooms.put(room.getId(), room));
+                RoomScheduleIndex existingSchedules = loadRoomSchedules(requests);
+                RoomScheduleIndex batchSchedules = new RoomScheduleIndex();
+
+                List<Showtime> acceptedShowtimes = new ArrayList<>();
                 int index = 0;
 
-                for (ShowtimeRequest showtimeRequest : request.getShowtimes()) {
+                for (ShowtimeRequest showtimeRequest : requests) {
                         index++;
                         try {
                                 if (!showtimeRequest.getStartTime().isBefore(showtimeRequest.getEndTime())) {
                                         throw new IllegalArgumentException("startTime must be before endTime");
                                 }
                                 // Validate entities exist
-                                Theater theater = theaterRepository.findById(showtimeRequest.getTheaterId())
-                                                .orElseThrow(() -> new EntityNotFoundException(
-                                                                "Theater with ID " + showtimeRequest.getTheaterId()
-                                                                                + " not found"));
-                                Room room = roomRepository.findById(showtimeRequest.getRoomId())
-                                                .orElseThrow(() -> new EntityNotFoundException(
-                                                                "Room with ID " + showtimeRequest.getRoomId()
-                                                                                + " not found"));
+                                Theater theater = theaters.get(showtimeRequest.getTheaterId());
+                                if (theater == null) {
+                                        throw new EntityNotFoundException(
+                                                        "Theater with ID " + showtimeRequest.getTheaterId()
+                                                                        + " not found");
+                                }
+                                Room room = rooms.get(showtimeRequest.getRoomId());
+                                if (room == null) {
+                                        throw new EntityNotFoundException(
+                                                        "Room with ID " + showtimeRequest.getRoomId() + " not found");
+                                }
 
                                 // 1. Check overlap with existing showtimes in database
-                                List<Showtime> overlappingShowtimes = showtimeRepository
-                                                .findOverlappingShowtimes(
-                                                                showtimeRequest.getRoomId(),
-                                                                showtimeRequest.getStartTime(),
-                                                                showtimeRequest.getEndTime());
-
-                                if (!overlappingShowtimes.isEmpty()) {
+                                if (existingSchedules.overlaps(showtimeRequest.getRoomId(),
+                                                showtimeRequest.getStartTime(), showtimeRequest.getEndTime())) {
                                         if (request.isSkipOnConflict()) {
                                                 errors.add("Showtime #" + index
                                                                 + " skipped: conflicts with existing showtime in database");
@@ -418,16 +612,9 @@ public class ShowtimeService {
                                         }
                                 }
 
-                                // 2. Check overlap with previously processed showtimes in this batch
-                                boolean hasInternalConflict = pendingShowtimes.stream()
-                                                .anyMatch(pending -> pending.getRoomId()
-                                                                .equals(showtimeRequest.getRoomId())
-                                                                && overlaps(pending.getStartTime(),
-                                                                                pending.getEndTime(),
-                                                                                showtimeRequest.getStartTime(),
-                                                                                showtimeRequest.getEndTime()));
-
-                                if (hasInternalConflict) {
+                                // 2. Check overlap with previously accepted showtimes in this batch
+                                if (batchSchedules.overlaps(showtimeRequest.getRoomId(),
+                                                showtimeRequest.getStartTime(), showtimeRequest.getEndTime())) {
                                         if (request.isSkipOnConflict()) {
                                                 errors.add("Showtime #" + index
                                                                 + " skipped: conflicts with previous showtime in batch");
@@ -439,34 +626,22 @@ public class ShowtimeService {
                                         }
                                 }
 
-                                // Create showtime
-                                Showtime showtime = Showtime.builder()
+                                batchSchedules.add(showtimeRequest.getRoomId(), showtimeRequest.getStartTime(),
+                                                showtimeRequest.getEndTime());
+                                acceptedShowtimes.add(Showtime.builder()
                                                 .movieId(showtimeRequest.getMovieId())
                                                 .theater(theater)
                                                 .room(room)
                                                 .startTime(showtimeRequest.getStartTime())
                                                 .endTime(showtimeRequest.getEndTime())
-                                                .build();
-
-                                Showtime savedShowtime = showtimeRepository.save(showtime);
-                                createdShowtimes.add(mapToShowtimeResponse(savedShowtime));
-
-                                // Cập nhật movie thành NOW_PLAYING
-                                try {
-                                        movieServiceClient.updateMovieToNowPlaying(showtimeRequest.getMovieId());
-                                } catch (Exception ex) {
-                                        log.warn("Failed to update movie {} to NOW_PLAYING",
-                                                        showtimeRequest.getMovieId(), ex);
-                                }
-
-                                // Add to pending list for next iteration's conflict check
-                                pendingShowtimes.add(showtimeRequest);
+                                                .build());
 
                         } catch (Exception e) {
                                 if (request.isSkipOnConflict()) {
                                         errors.add("Showtime #" + index + " failed: " + e.getMessage());
                                 } else {
                                         // Fail entire batch if skipOnConflict is false
+                                        // (chưa lưu suất nào vì việc kiểm tra chạy xong trước khi insert)
                                         throw new IllegalStateException(
                                                         "Batch creation failed at showtime #" + index + ": "
                                                                         + e.getMessage(),
@@ -475,8 +650,25 @@ public class ShowtimeService {
                         }
                 }
 
+                // Insert theo lô JDBC (hibernate.jdbc.batch_size) trong 1 transaction
+                List<Showtime> savedShowtimes = showtimeRepository.saveAll(acceptedShowtimes);
+                scheduleCacheService.evictShowtimes(savedShowtimes);
+
+                // Cập nhật movie thành NOW_PLAYING: 1 lần cho mỗi phim
+                savedShowtimes.stream().map(Showtime::getMovieId).distinct().forEach(movieId -> {
+                        try {
+                                movieServiceClient.updateMovieToNowPlaying(movieId);
+                        } catch (Exception ex) {
+                                log.warn("Failed to update movie {} to NOW_PLAYING", movieId, ex);
+                        }
+                });
+
+                List<ShowtimeResponse> createdShowtimes = savedShowtimes.stream()
+                                .map(this::mapToShowtimeResponse)
+                                .collect(Collectors.toList());
+
                 return BatchShowtimeResponse.builder()
-                                .totalRequested(request.getShowtimes().size())
+                                .totalRequested(requests.size())
                                 .successCount(createdShowtimes.size())
                                 .failedCount(errors.size())
                                 .createdShowtimes(createdShowtimes)
@@ -484,6 +676,35 @@ public class ShowtimeService {
                                 .build();
         }
 
+        /**
+         * Lịch bận trong DB của các phòng có trong lô, trong khoảng thời gian lô bao phủ.
+         */
+        private RoomScheduleIndex loadRoomSchedules(List<ShowtimeRequest> requests) {
+                RoomScheduleIndex index = new RoomScheduleIndex();
+                Set<UUID> roomIds = new HashSet<>();
+                LocalDateTime from = null;
+                LocalDateTime to = null;
+                for (ShowtimeRequest showtimeRequest : requests) {
+                        if (showtimeRequest.getRoomId() == null || showtimeRequest.getStartTime() == null
+                                        || showtimeRequest.getEndTime() == null) {
+                                continue;
+                        }
+                        roomIds.add(showtimeRequest.getRoomId());
+                        from = from == null || showtimeRequest.getStartTime().isBefore(from)
+                                        ? showtimeRequest.getStartTime()
+                                        : from;
+                        to = to == null || showtimeRequest.getEndTime().isAfter(to) ? showtimeRequest.getEndTime() : to;
+                }
+                if (roomIds.isEmpty()) {
+                        return index;
+                }
+
+                for (Object[] row : showtimeRepository.findRoomSchedules(roomIds, from, to)) {
+                        index.add((UUID) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2]);
+                }
+                return index;
+        }
+
         public ShowtimeConflictResponse validateShowtime(ValidateShowtimeRequest request) {
                 List<Showtime> overlappingShowtimes = showtimeRepository.findOverlappingShowtimes(
                                 request.getRoomId(),
@@ -526,6 +747,12 @@ public class ShowtimeService {
         }
 
         // --- Helper function: Mapping từ Entity sang Response DTO ---
+        private <T> T inReadOnlyTransaction(java.util.function.Supplier<T> loader) {
+                TransactionTemplate template = new TransactionTemplate(transactionManager);
+                template.setReadOnly(true);
+                return template.execute(status -> loader.get());
+        }
+
         private ShowtimeResponse mapToShowtimeResponse(Showtime showtime) {
                 return ShowtimeResponse.builder()
                                 .id(showtime.getId())
@@ -560,12 +787,13 @@ public class ShowtimeService {
                 }
         }
 
-        private boolean overlaps(LocalDateTime start1, LocalDateTime end1, LocalDateTime start2, LocalDateTime end2) {
-                return start1.isBefore(end2) && end1.isAfter(start2);
-        }
-
         public AutoGenerateShowtimesResponse autoGenerateShowtimes(LocalDate startDate, LocalDate endDate) {
                 log.info("Starting auto-generation from {} to {}", startDate, endDate);
+                long startedAt = System.currentTimeMillis();
+
+                // datesUntil ném lỗi khi endDate < startDate; khoảng ngày rỗng thì không sinh gì
+                if (endDate.isBefore(startDate))
+                        return buildEmptyResponse("End date is before start date");
 
                 List<MovieSummaryResponse> availableMovies = movieServiceClient
                                 .getAvailableMoviesForDateRange(startDate, endDate);
@@ -576,33 +804,120 @@ public class ShowtimeService {
                 if (theaters.isEmpty())
                         return buildEmptyResponse("No theaters found");
 
-                GenerationStats stats = new GenerationStats();
                 long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(startDate, endDate) + 1;
+                List<LocalDate> dates = startDate.datesUntil(endDate.plusDays(1)).toList();
+
+                // Bộ chọn phim của từng ngày chỉ dựng 1 lần, dùng chung cho mọi phòng (bất biến, an toàn giữa các luồng)
+                Map<LocalDate, WeightedMovieSampler> samplersByDate = new LinkedHashMap<>();
+                for (LocalDate date : dates) {
+                        List<MovieSummaryResponse> todayMovies = availableMovies.stream()
+                                        .filter(m -> isMovieAvailable(m, date))
+                                        .toList();
+                        if (!todayMovies.isEmpty())
+                                samplersByDate.put(date, createMovieSampler(todayMovies));
+                }
+
+                // Lấy trước toàn bộ phòng và lịch đã có của cả khoảng ngày: 2 query thay vì mỗi phòng mỗi ngày
+                List<Room> rooms = roomRepository.findByTheaterIdIn(theaters.stream().map(Theater::getId).toList());
+                if (rooms.isEmpty())
+                        return buildEmptyResponse("No rooms found");
+                Map<UUID, List<TimeSlot>> busyByRoom = loadBusySlots(rooms, startDate, endDate);
 
-                for (long i = 0; i < daysBetween; i++) {
-                        LocalDate targetDate = startDate.plusDays(i);
-                        generateForDate(targetDate, availableMovies, theaters, stats);
+                GenerationStats stats = new GenerationStats();
+                List<ScheduleChange> changedDates = dates.stream()
+                                .map(date -> new ScheduleChange(null, null, null, date))
+                                .toList();
+                try {
+                        List<Showtime> planned = planShowtimesInParallel(rooms, samplersByDate, busyByRoom);
+                        saveGeneratedShowtimes(planned, availableMovies, stats);
+                } finally {
+                        // Sinh lịch cho mọi rạp: xóa cache theo từng ngày đã sinh
+                        scheduleCacheService.evict(changedDates);
                 }
 
+                log.info("Auto-generation from {} to {} finished in {} ms: {} rooms, {} showtimes, {} movies, {} errors",
+                                startDate, endDate, System.currentTimeMillis() - startedAt, rooms.size(),
+                                stats.getTotalGenerated(), stats.getGeneratedMovies().size(),
+                                stats.getErrors().size());
                 return buildSuccessResponse(stats, theaters.size(), daysBetween);
         }
 
-        private void generateForDate(LocalDate date, List<MovieSummaryResponse> movies, List<Theater> theaters,
+        /**
+         * Khoảng bận của từng phòng, phủ cả biên ±4h mà bộ sinh lịch xét quanh mỗi ngày.
+         * Mọi phòng đều có entry để các luồng lập lịch chỉ đọc map, không sửa.
+         */
+        private Map<UUID, List<TimeSlot>> loadBusySlots(List<Room> rooms, LocalDate startDate, LocalDate endDate) {
+                Map<UUID, List<TimeSlot>> busyByRoom = new HashMap<>();
+                rooms.forEach(room -> busyByRoom.put(room.getId(), new ArrayList<>()));
+
+                List<Object[]> rows = showtimeRepository.findRoomSchedules(busyByRoom.keySet(),
+                                startDate.atStartOfDay().minusHours(4),
+                                endDate.plusDays(1).atStartOfDay().plusHours(4));
+                for (Object[] row : rows) {
+                        busyByRoom.get((UUID) row[0])
+                                        .add(new TimeSlot((LocalDateTime) row[1], (LocalDateTime) row[2]));
+                }
+                return busyByRoom;
+        }
+
+        /**
+         * Các phòng độc lập với nhau nên lập lịch song song, mỗi phòng 1 task (các ngày xử lý tuần tự
+         * để ngày sau thấy suất chiếu của ngày trước). Chạy trên ForkJoinPool riêng để không chiếm common pool.
+         */
+        private List<Showtime> planShowtimesInParallel(List<Room> rooms,
+                        Map<LocalDate, WeightedMovieSampler> samplersByDate,
+                        Map<UUID, List<TimeSlot>> busyByRoom) {
+                if (samplersByDate.isEmpty())
+                        return List.of();
+
+                int parallelism = autoGenerateConfig.getParallelism() > 0
+                                ? autoGenerateConfig.getParallelism()
+                                : Runtime.getRuntime().availableProcessors();
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                        return pool.submit(() -> rooms.parallelStream()
+                                        .flatMap(room -> generationHelper
+                                                        .generateForRoom(room, samplersByDate, busyByRoom.get(room.getId()))
+                                                        .stream())
+                                        .toList())
+                                        .join();
+                } finally {
+                        pool.shutdown();
+                }
+        }
+
+        /**
+         * Ghi theo từng lô: mỗi lô là 1 transaction (saveAll), Hibernate gom INSERT theo
+         * hibernate.jdbc.batch_size. Lô lỗi được ghi vào stats, các lô khác vẫn được lưu.
+         */
+        private void saveGeneratedShowtimes(List<Showtime> planned, List<MovieSummaryResponse> movies,
                         GenerationStats stats) {
-                List<MovieSummaryResponse> todayMovies = movies.stream()
-                                .filter(m -> isMovieAvailable(m, date))
-                                .toList();
-                if (todayMovies.isEmpty())
-                        return;
+                int batchSize = Math.max(1, autoGenerateConfig.getWriteBatchSize());
+                Set<UUID> savedMovieIds = new LinkedHashSet<>();
 
-                List<MovieSummaryResponse> weightedPool = createWeightedMoviePool(todayMovies);
+                for (int from = 0; from < planned.size(); from += batchSize) {
+                        List<Showtime> chunk = planned.subList(from, Math.min(from + batchSize, planned.size()));
+                        try {
+                                showtimeRepository.saveAll(chunk);
+                                stats.setTotalGenerated(stats.getTotalGenerated() + chunk.size());
+                                chunk.forEach(st -> savedMovieIds.add(st.getMovieId()));
+                        } catch (Exception e) {
+                                log.error("Failed to save generated showtimes {}-{}: {}", from, from + chunk.size(),
+                                                e.getMessage());
+                                stats.getErrors().add(e.getMessage());
+                        }
+                }
 
-                for (Theater t : theaters) {
-                        List<Room> rooms = roomRepository.findByTheaterId(t.getId());
-                        // Bỏ ensureOneShowtimePerMovie - weighted pool đã đảm bảo phim popular xuất
-                        // hiện nhiều
-                        for (Room r : rooms) {
-                                generationHelper.generateForRoom(date, t, r, weightedPool, stats);
+                // Mỗi phim chỉ gọi movie-service 1 lần
+                Map<UUID, String> titles = movies.stream()
+                                .collect(Collectors.toMap(MovieSummaryResponse::getId, MovieSummaryResponse::getTitle,
+                                                (a, b) -> a));
+                for (UUID movieId : savedMovieIds) {
+                        stats.getGeneratedMovies().add(titles.get(movieId));
+                        try {
+                                movieServiceClient.updateMovieToNowPlaying(movieId);
+                        } catch (Exception e) {
+                                log.warn("Failed to update movie {} to NOW_PLAYING", movieId, e);
                         }
                 }
         }
@@ -618,35 +933,16 @@ public class ShowtimeService {
                                 .build();
         }
 
-        private List<MovieSummaryResponse> createWeightedMoviePool(List<MovieSummaryResponse> movies) {
-                if (movies.isEmpty())
-                        return new ArrayList<>();
-
-                List<MovieSummaryResponse> pool = new ArrayList<>();
-
+        private WeightedMovieSampler createMovieSampler(List<MovieSummaryResponse> movies) {
                 // Log để debug dải điểm thực tế
                 double maxPop = movies.stream()
                                 .mapToDouble(m -> m.getPopularity() != null ? m.getPopularity() : 0)
                                 .max().orElse(0);
-                log.info("Generating pool. Max popularity in batch: {}", maxPop);
-
-                for (MovieSummaryResponse m : movies) {
-                        double pop = m.getPopularity() != null ? m.getPopularity() : 5.0;
-
-                        // GỌI HÀM MỚI Ở ĐÂY
-                        int weight = calculateDynamicWeight(pop);
-
-                        // Log chi tiết để bạn kiểm tra
-                        // log.debug("Movie: {} | Pop: {} | Weight: {}", m.getTitle(), pop, weight);
+                log.info("Generating sampler. Max popularity in batch: {}", maxPop);
 
-                        for (int i = 0; i < weight; i++) {
-                                pool.add(m);
-                        }
-                }
-
-                // Đừng quên shuffle!
-                Collections.shuffle(pool);
-                return pool;
+                // Trọng số theo nhóm popularity; mỗi phim chỉ chiếm 1 ô trong bảng alias
+                return WeightedMovieSampler.of(movies,
+                                m -> calculateDynamicWeight(m.getPopularity() != null ? m.getPopularity() : 5.0));
         }
 
         private int calculateDynamicWeight(double popularity) {
@@ -710,12 +1006,15 @@ public class ShowtimeService {
             
             int totalShowtimes = activeShowtimes.size();
             int suspendedCount = 0;
+            List<Showtime> suspendedShowtimes = new ArrayList<>();
             
             for (Showtime showtime : activeShowtimes) {
                 try {
                     // Suspend the showtime
                     showtime.setStatus(com.cinehub.showtime.entity.ShowtimeStatus.SUSPENDED);
                     showtimeRepository.save(showtime);
+                    seatMapCacheService.evict(showtime.getId());
+                    suspendedShowtimes.add(showtime);
                     suspendedCount++;
                     
                     // Send event to booking service to process voucher refunds
@@ -737,6 +1036,8 @@ public class ShowtimeService {
                 }
             }
             
+            scheduleCacheService.evictShowtimes(suspendedShowtimes);
+
             // Also send events for already SUSPENDED showtimes (in case they have CONFIRMED bookings that weren't refunded)
             List<Showtime> alreadySuspendedShowtimes = showtimeRepository.findByMovieIdAndStatus(movieId, 
                 com.cinehub.showtime.entity.ShowtimeStatus.SUSPENDED);
@@ -21,6 +21,7 @@ public class ShowtimeStatusService {
 
     private final ShowtimeRepository showtimeRepository;
     private final ShowtimeProducer showtimeProducer;
+    private final SeatMapCacheService seatMapCacheService;
 
     /**
      * Suspend all active showtimes for a movie (when movie is archived)
@@ -43,6 +44,7 @@ public class ShowtimeStatusService {
         for (Showtime showtime : showtimes) {
             showtime.setStatus(ShowtimeStatus.SUSPENDED);
             showtimeRepository.save(showtime);
+            seatMapCacheService.evict(showtime.getId());
 
             // Send event to booking service to refund users
             ShowtimeSuspendedEvent event = new ShowtimeSuspendedEvent(
@@ -75,6 +77,7 @@ public class ShowtimeStatusService {
 
         showtime.setStatus(ShowtimeStatus.SUSPENDED);
         showtimeRepository.save(showtime);
+        seatMapCacheService.evict(showtimeId);
 
         // Send event
         ShowtimeSuspendedEvent event = new ShowtimeSuspendedEvent(
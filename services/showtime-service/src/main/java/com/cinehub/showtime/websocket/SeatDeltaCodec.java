@@ -0,0 +1,75 @@
+package com.cinehub.showtime.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Mã hóa thay đổi ghế cho giao thức WebSocket nhị phân (sub-protocol seatmap.binary.v1).
+ * Frame (big-endian):
+ * - u8 loại frame (0x01 = SEAT_DELTA)
+ * - u32 seq của frame trong luồng thay đổi của suất chiếu (0 = không đánh số)
+ * - u16 số ghế
+ * - mỗi ghế: u16 seatIndex, u8 trạng thái (0 AVAILABLE, 1 LOCKED, 2 BOOKED), u16 ttl (giây)
+ */
+final class SeatDeltaCodec {
+
+    static final String SUB_PROTOCOL = "seatmap.binary.v1";
+
+    private static final byte FRAME_SEAT_DELTA = 0x01;
+    private static final int HEADER_BYTES = 7;
+    private static final int SEAT_BYTES = 5;
+
+    private SeatDeltaCodec() {
+    }
+
+    /**
+     * Chuyển frame JSON (SeatLockResponse, SeatLockBatchResponse hoặc ShowtimeSeatResponse) sang nhị phân.
+     *
+     * @return null nếu frame không phải thay đổi ghế hoặc có ghế không nằm trong từ điển
+     */
+    static byte[] encode(ObjectMapper objectMapper, long seq, String json, Map<UUID, Integer> seatIndexes) {
+        try {
+            JsonNode root = objectMapper.readTree(json);
+            List<JsonNode> seats = new ArrayList<>();
+            if (root.has("seats") && root.get("seats").isArray()) {
+                root.get("seats").forEach(seats::add);
+            } else if (root.has("seatId")) {
+                seats.add(root);
+            }
+            if (seats.isEmpty() || seats.size() > 0xFFFF) {
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + seats.size() * SEAT_BYTES);
+            buffer.put(FRAME_SEAT_DELTA);
+            buffer.putInt((int) seq);
+            buffer.putShort((short) seats.size());
+            for (JsonNode seat : seats) {
+                Integer index = seatIndexes.get(UUID.fromString(seat.path("seatId").asText()));
+                if (index == null) {
+                    return null;
+                }
+                buffer.putShort(index.shortValue());
+                buffer.put(state(seat.path("status").asText()));
+                buffer.putShort((short) Math.min(0xFFFF, Math.max(0, seat.path("ttl").asLong(0))));
+            }
+            return buffer.array();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static byte state(String status) {
+        return switch (status) {
+            case "LOCKED" -> 1;
+            case "BOOKED" -> 2;
+            default -> 0;
+        };
+    }
+}
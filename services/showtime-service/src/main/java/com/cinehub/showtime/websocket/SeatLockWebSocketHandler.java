@@ -1,36 +1,122 @@
 package com.cinehub.showtime.websocket;
 
+import com.cinehub.showtime.dto.response.SeatIndexResponse;
+import com.cinehub.showtime.dto.response.SeatSnapshotResponse;
+import com.cinehub.showtime.dto.response.ShowtimeSeatResponse;
+import com.cinehub.showtime.service.AdmissionControlService;
+import com.cinehub.showtime.service.ShowtimeSeatService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class SeatLockWebSocketHandler extends TextWebSocketHandler {
+public class SeatLockWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
+
+    private static final String SEND_QUEUE_ATTRIBUTE = "sendQueue";
+    private static final String BINARY_ATTRIBUTE = "binary";
+    private static final String PENDING_ATTRIBUTE = "pendingFrames";
 
     private final ObjectMapper objectMapper;
+    private final ShowtimeSeatService showtimeSeatService;
+    private final SeatUpdateLog seatUpdateLog;
+    private final WebSocketMetrics metrics;
 
     private final Map<UUID, CopyOnWriteArraySet<WebSocketSession>> showtimeSessions = new ConcurrentHashMap<>();
 
+    // seatId -> seatIndex của các suất chiếu có client nhị phân trên replica này
+    private final Map<UUID, Map<UUID, Integer>> seatIndexes = new ConcurrentHashMap<>();
+
+    @Value("${websocket.send.threads:8}")
+    private int sendThreads;
+
+    @Value("${websocket.send.buffer-size:256}")
+    private int sendBufferSize;
+
+    @Value("${websocket.send.time-limit-ms:5000}")
+    private long sendTimeLimitMillis;
+
+    @Value("${websocket.send.overflow:CLOSE}")
+    private SessionSendQueue.OverflowPolicy overflowPolicy;
+
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    void startSendExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        sendExecutor = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ws-send-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopSendExecutor() {
+        sendExecutor.shutdown();
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String path = session.getUri().getPath();
         UUID showtimeId = extractShowtimeId(path);
 
         if (showtimeId != null) {
-            showtimeSessions.computeIfAbsent(showtimeId, k -> new CopyOnWriteArraySet<>()).add(session);
             session.getAttributes().put("showtimeId", showtimeId);
+            session.getAttributes().put(SEND_QUEUE_ATTRIBUTE, new SessionSendQueue(session, sendExecutor,
+                    sendBufferSize, sendTimeLimitMillis, overflowPolicy, metrics));
+            String owner = extractOwner(session);
+            if (owner != null) {
+                session.getAttributes().put("owner", owner);
+            }
+            if (SeatDeltaCodec.SUB_PROTOCOL.equals(session.getAcceptedProtocol())) {
+                sendSeatIndex(session, showtimeId);
+            }
+
+            // Client kết nối lại với lastSeq: giữ frame mới tới khi đã phát lại xong phần bị lỡ
+            Long lastSeq = extractLastSeq(session);
+            PendingFrames pending = lastSeq != null ? new PendingFrames() : null;
+            if (pending != null) {
+                session.getAttributes().put(PENDING_ATTRIBUTE, pending);
+            }
+            showtimeSessions.computeIfAbsent(showtimeId, id -> {
+                CopyOnWriteArraySet<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+                metrics.registerShowtime(id, sessions);
+                return sessions;
+            }).add(session);
+            metrics.sessionOpened();
+            if (pending != null) {
+                resume(session, showtimeId, lastSeq, pending);
+            }
             log.info("WebSocket connected: session={}, showtimeId={}", session.getId(), showtimeId);
         } else {
             log.warn("Invalid WebSocket path: {}", path);
@@ -43,10 +129,12 @@ public class SeatLockWebSocketHandler extends TextWebSocketHandler {
         UUID showtimeId = (UUID) session.getAttributes().get("showtimeId");
         if (showtimeId != null) {
             CopyOnWriteArraySet<WebSocketSession> sessions = showtimeSessions.get(showtimeId);
-            if (sessions != null) {
-                sessions.remove(session);
+            if (sessions != null && sessions.remove(session)) {
+                metrics.sessionClosed();
                 if (sessions.isEmpty()) {
                     showtimeSessions.remove(showtimeId);
+                    seatIndexes.remove(showtimeId);
+                    metrics.removeShowtime(showtimeId);
                 }
             }
         }
@@ -56,25 +144,245 @@ public class SeatLockWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("WebSocket error for session {}: {}", session.getId(), exception.getMessage());
+        metrics.recordClosed(WebSocketMetrics.CLOSE_TRANSPORT_ERROR);
         session.close(CloseStatus.SERVER_ERROR);
     }
 
+    /**
+     * Chỉ gửi tới các session trên replica này. Thay đổi ghế cần tới mọi replica
+     * phải đi qua {@link SeatUpdateRelay}.
+     */
     public void broadcastToShowtime(UUID showtimeId, Object message) {
+        try {
+            broadcastFrame(showtimeId, 0, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("Error broadcasting to showtime {}: {}", showtimeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Đưa frame đã serialize vào hàng đợi gửi của từng session, không chặn luồng gọi.
+     *
+     * @param seq số thứ tự trong luồng thay đổi của suất chiếu, 0 nếu frame không được đánh số
+     */
+    public void broadcastFrame(UUID showtimeId, long seq, String json) {
         CopyOnWriteArraySet<WebSocketSession> sessions = showtimeSessions.get(showtimeId);
-        if (sessions != null && !sessions.isEmpty()) {
-            try {
-                String json = objectMapper.writeValueAsString(message);
-                TextMessage textMessage = new TextMessage(json);
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        TextMessage textMessage = new TextMessage(withSeq(seq, json));
+        byte[] binary = null;
+        boolean binaryEncoded = false;
+        for (WebSocketSession session : sessions) {
+            PendingFrames pending = (PendingFrames) session.getAttributes().get(PENDING_ATTRIBUTE);
+            if (pending != null && pending.hold(seq, json)) {
+                continue;
+            }
+            if (!Boolean.TRUE.equals(session.getAttributes().get(BINARY_ATTRIBUTE))) {
+                enqueue(session, textMessage);
+                continue;
+            }
+            // Mã hóa 1 lần cho mọi client nhị phân; frame không mã hóa được thì gửi JSON
+            if (!binaryEncoded) {
+                Map<UUID, Integer> indexes = seatIndexes.get(showtimeId);
+                binary = indexes != null
+                        ? metrics.timeSerialization("binary",
+                                () -> SeatDeltaCodec.encode(objectMapper, seq, json, indexes))
+                        : null;
+                binaryEncoded = true;
+            }
+            enqueue(session, binary != null ? new BinaryMessage(binary) : textMessage);
+        }
+        log.debug("Broadcasted to {} sessions for showtime {}", sessions.size(), showtimeId);
+    }
+
+    /**
+     * Owner (USER:{userId} / GUEST:{guestSessionId}) của các client đang kết nối vào suất chiếu.
+     */
+    public Set<String> getConnectedOwners(UUID showtimeId) {
+        CopyOnWriteArraySet<WebSocketSession> sessions = showtimeSessions.get(showtimeId);
+        if (sessions == null) {
+            return Collections.emptySet();
+        }
+        Set<String> owners = new HashSet<>();
+        for (WebSocketSession session : sessions) {
+            Object owner = session.getAttributes().get("owner");
+            if (owner != null) {
+                owners.add((String) owner);
+            }
+        }
+        return owners;
+    }
 
-                for (WebSocketSession session : sessions) {
-                    if (session.isOpen()) {
-                        session.sendMessage(textMessage);
-                    }
+    public void sendToOwner(UUID showtimeId, String owner, Object message) {
+        CopyOnWriteArraySet<WebSocketSession> sessions = showtimeSessions.get(showtimeId);
+        if (sessions == null) {
+            return;
+        }
+        try {
+            TextMessage textMessage = new TextMessage(objectMapper.writeValueAsString(message));
+            for (WebSocketSession session : sessions) {
+                if (owner.equals(session.getAttributes().get("owner"))) {
+                    enqueue(session, textMessage);
                 }
-                log.debug("Broadcasted to {} sessions for showtime {}", sessions.size(), showtimeId);
-            } catch (Exception e) {
-                log.error("Error broadcasting to showtime {}: {}", showtimeId, e.getMessage());
             }
+        } catch (Exception e) {
+            log.error("Error sending to {} in showtime {}: {}", owner, showtimeId, e.getMessage());
+        }
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(SeatDeltaCodec.SUB_PROTOCOL);
+    }
+
+    /**
+     * Gửi từ điển seatIndex cho client nhị phân. Nếu không tải được sơ đồ ghế,
+     * session tiếp tục nhận frame JSON.
+     */
+    private void sendSeatIndex(WebSocketSession session, UUID showtimeId) {
+        try {
+            Map<UUID, Integer> indexes = seatIndexes.computeIfAbsent(showtimeId, this::loadSeatIndex);
+            List<UUID> seatIds = new ArrayList<>(Collections.nCopies(indexes.size(), (UUID) null));
+            indexes.forEach((seatId, index) -> seatIds.set(index, seatId));
+
+            enqueue(session, new TextMessage(objectMapper.writeValueAsString(SeatIndexResponse.builder()
+                    .showtimeId(showtimeId)
+                    .seatIds(seatIds)
+                    .build())));
+            session.getAttributes().put(BINARY_ATTRIBUTE, true);
+        } catch (Exception e) {
+            log.warn("Cannot load seat index for showtime {}: {}. Falling back to JSON frames.", showtimeId,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Phát lại các frame có seq > lastSeq. Nếu ring buffer không còn đủ (client mất kết nối quá lâu)
+     * hoặc client chưa có trạng thái (lastSeq = 0) thì gửi snapshot toàn bộ sơ đồ ghế.
+     */
+    private void resume(WebSocketSession session, UUID showtimeId, long lastSeq, PendingFrames pending) {
+        SeatUpdateLog.Replay replay = null;
+        try {
+            replay = seatUpdateLog.since(showtimeId, lastSeq);
+        } catch (Exception e) {
+            log.warn("Cannot read seat update log for showtime {}: {}", showtimeId, e.getMessage());
+        }
+
+        long appliedSeq;
+        if (replay != null && replay.complete()) {
+            for (SeatUpdateLog.Entry entry : replay.missed()) {
+                enqueue(session, frameFor(session, showtimeId, entry.seq(), entry.json()));
+            }
+            appliedSeq = replay.currentSeq();
+            log.debug("Replayed {} seat updates to session {} from seq {}", replay.missed().size(),
+                    session.getId(), lastSeq);
+        } else {
+            appliedSeq = replay != null ? replay.currentSeq() : 0;
+            sendSnapshot(session, showtimeId, appliedSeq);
+        }
+
+        // Frame giữ lại trong lúc phát lại: bỏ phần đã nằm trong replay/snapshot
+        pending.release(entry -> {
+            if (entry.seq() == 0 || entry.seq() > appliedSeq) {
+                enqueue(session, frameFor(session, showtimeId, entry.seq(), entry.json()));
+            }
+        });
+        session.getAttributes().remove(PENDING_ATTRIBUTE);
+    }
+
+    /**
+     * Snapshot đọc sau seq nên đã chứa mọi thay đổi tới seq (cache sơ đồ ghế được cập nhật trước khi phát).
+     */
+    private void sendSnapshot(WebSocketSession session, UUID showtimeId, long seq) {
+        try {
+            enqueue(session, new TextMessage(objectMapper.writeValueAsString(SeatSnapshotResponse.builder()
+                    .showtimeId(showtimeId)
+                    .seq(seq)
+                    .seats(showtimeSeatService.getSeatsByShowtime(showtimeId).getSeats())
+                    .build())));
+        } catch (Exception e) {
+            log.error("Cannot send seat snapshot for showtime {}: {}. Closing session {}.", showtimeId,
+                    e.getMessage(), session.getId());
+            try {
+                session.close(CloseStatus.SERVER_ERROR);
+            } catch (Exception closeError) {
+                log.debug("Error closing WebSocket session {}: {}", session.getId(), closeError.getMessage());
+            }
+        }
+    }
+
+    private WebSocketMessage<?> frameFor(WebSocketSession session, UUID showtimeId, long seq, String json) {
+        if (Boolean.TRUE.equals(session.getAttributes().get(BINARY_ATTRIBUTE))) {
+            Map<UUID, Integer> indexes = seatIndexes.get(showtimeId);
+            byte[] binary = indexes != null ? SeatDeltaCodec.encode(objectMapper, seq, json, indexes) : null;
+            if (binary != null) {
+                return new BinaryMessage(binary);
+            }
+        }
+        return new TextMessage(withSeq(seq, json));
+    }
+
+    /**
+     * Thêm "seq" vào đầu object JSON để client biết vị trí frame trong luồng thay đổi.
+     */
+    private static String withSeq(long seq, String json) {
+        if (seq <= 0 || !json.startsWith("{")) {
+            return json;
+        }
+        return json.length() > 2
+                ? "{\"seq\":" + seq + "," + json.substring(1)
+                : "{\"seq\":" + seq + "}";
+    }
+
+    private Map<UUID, Integer> loadSeatIndex(UUID showtimeId) {
+        List<ShowtimeSeatResponse> seats = showtimeSeatService.getSeatsByShowtime(showtimeId).getSeats();
+        Map<UUID, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < seats.size(); i++) {
+            indexes.put(seats.get(i).getSeatId(), i);
+        }
+        return indexes;
+    }
+
+    private void enqueue(WebSocketSession session, WebSocketMessage<?> message) {
+        SessionSendQueue queue = (SessionSendQueue) session.getAttributes().get(SEND_QUEUE_ATTRIBUTE);
+        if (queue != null) {
+            queue.enqueue(message);
+        }
+    }
+
+    /**
+     * Client truyền userId hoặc guestSessionId qua query string để nhận vị trí hàng chờ.
+     */
+    private String extractOwner(WebSocketSession session) {
+        try {
+            MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build()
+                    .getQueryParams();
+            String userId = params.getFirst("userId");
+            String guestSessionId = params.getFirst("guestSessionId");
+            if (userId == null && guestSessionId == null) {
+                return null;
+            }
+            return AdmissionControlService.owner(
+                    userId != null ? UUID.fromString(userId) : null,
+                    guestSessionId != null ? UUID.fromString(guestSessionId) : null);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid owner in WebSocket query: {}", session.getUri());
+            return null;
+        }
+    }
+
+    private Long extractLastSeq(WebSocketSession session) {
+        String lastSeq = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams()
+                .getFirst("lastSeq");
+        if (lastSeq == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastSeq);
+        } catch (NumberFormatException e) {
+            // lastSeq không hợp lệ: coi như client chưa có trạng thái, gửi snapshot
+            return 0L;
         }
     }
 
@@ -90,4 +398,28 @@ public class SeatLockWebSocketHandler extends TextWebSocketHandler {
         }
         return null;
     }
+
+    /**
+     * Frame tới trong lúc session đang phát lại. Sau {@link #release} các frame mới đi thẳng vào hàng đợi gửi;
+     * release chạy trong lock nên frame giữ lại luôn được gửi trước frame mới.
+     */
+    private static final class PendingFrames {
+
+        private final List<SeatUpdateLog.Entry> frames = new ArrayList<>();
+        private boolean released;
+
+        synchronized boolean hold(long seq, String json) {
+            if (released) {
+                return false;
+            }
+            frames.add(new SeatUpdateLog.Entry(seq, json));
+            return true;
+        }
+
+        synchronized void release(Consumer<SeatUpdateLog.Entry> sender) {
+            released = true;
+            frames.forEach(sender);
+            frames.clear();
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.cinehub.showtime.websocket;
+
+import com.cinehub.showtime.dto.response.SeatLockBatchResponse;
+import com.cinehub.showtime.dto.response.SeatLockResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gộp các thay đổi ghế của cùng suất chiếu trong 1 cửa sổ ngắn thành 1 frame WebSocket.
+ * Trong cửa sổ, mỗi ghế chỉ giữ trạng thái mới nhất.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatUpdateBroadcaster {
+
+    private final SeatUpdateRelay seatUpdateRelay;
+
+    @Value("${websocket.seat-update.window-ms:30}")
+    private long windowMillis;
+
+    private final Map<UUID, Map<UUID, SeatLockResponse>> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "seat-update-broadcaster");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void publish(UUID showtimeId, SeatLockResponse update) {
+        publish(showtimeId, List.of(update));
+    }
+
+    public void publish(UUID showtimeId, List<SeatLockResponse> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        if (windowMillis <= 0) {
+            send(showtimeId, updates);
+            return;
+        }
+
+        boolean[] firstInWindow = { false };
+        pending.compute(showtimeId, (id, seats) -> {
+            if (seats == null) {
+                seats = new LinkedHashMap<>();
+                firstInWindow[0] = true;
+            }
+            for (SeatLockResponse update : updates) {
+                seats.remove(update.getSeatId());
+                seats.put(update.getSeatId(), update);
+            }
+            return seats;
+        });
+
+        // Thay đổi đầu tiên của cửa sổ lên lịch flush, các thay đổi sau chỉ gộp vào
+        if (firstInWindow[0]) {
+            scheduler.schedule(() -> flush(showtimeId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        new ArrayList<>(pending.keySet()).forEach(this::flush);
+    }
+
+    private void flush(UUID showtimeId) {
+        Map<UUID, SeatLockResponse> seats = pending.remove(showtimeId);
+        if (seats == null || seats.isEmpty()) {
+            return;
+        }
+        try {
+            send(showtimeId, new ArrayList<>(seats.values()));
+        } catch (Exception e) {
+            log.error("Error flushing {} seat updates for showtime {}: {}", seats.size(), showtimeId,
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * 1 thay đổi vẫn gửi dạng SeatLockResponse để tương thích client cũ.
+     */
+    private void send(UUID showtimeId, List<SeatLockResponse> updates) {
+        if (updates.size() == 1) {
+            seatUpdateRelay.publish(showtimeId, updates.get(0));
+            return;
+        }
+        seatUpdateRelay.publish(showtimeId, SeatLockBatchResponse.builder()
+                .showtimeId(showtimeId)
+                .seats(updates)
+                .build());
+    }
+}
@@ -0,0 +1,125 @@
+package com.cinehub.showtime.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Luồng thay đổi ghế có đánh số thứ tự theo suất chiếu.
+ * - seat-updates:seq:{showtimeId}: số thứ tự tăng dần
+ * - seat-updates:log:{showtimeId}: ring buffer các frame gần nhất dạng "{seq}:{json}"
+ * Client kết nối lại với lastSeq sẽ nhận lại các frame bị lỡ từ ring buffer.
+ */
+@Component
+@RequiredArgsConstructor
+public class SeatUpdateLog {
+
+    private static final String SEQ_KEY_PREFIX = "seat-updates:seq:";
+    private static final String LOG_KEY_PREFIX = "seat-updates:log:";
+    private static final long SEQ_TTL_SECONDS = 172800;
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${websocket.replay.buffer-size:512}")
+    private int bufferSize;
+
+    @Value("${websocket.replay.ttl-seconds:3600}")
+    private long logTtlSeconds;
+
+    /**
+     * Cấp số thứ tự, ghi vào ring buffer và publish trong cùng 1 lệnh để thứ tự trên kênh
+     * khớp với số thứ tự.
+     * KEYS[1]: seq key, KEYS[2]: log key. ARGV[1]: json, ARGV[2]: buffer size, ARGV[3]: log TTL,
+     * ARGV[4]: seq TTL, ARGV[5]: kênh pub/sub.
+     */
+    private static final String APPEND_SCRIPT = """
+            local seq = redis.call('INCR', KEYS[1])
+            local entry = seq .. ':' .. ARGV[1]
+            redis.call('RPUSH', KEYS[2], entry)
+            redis.call('LTRIM', KEYS[2], -tonumber(ARGV[2]), -1)
+            redis.call('EXPIRE', KEYS[2], ARGV[3])
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            redis.call('PUBLISH', ARGV[5], entry)
+            return seq
+            """;
+
+    /**
+     * KEYS[1]: seq key, KEYS[2]: log key. Trả về {seq hiện tại, các entry trong ring buffer...}.
+     */
+    private static final String READ_SCRIPT = """
+            local result = { redis.call('GET', KEYS[1]) or '0' }
+            local entries = redis.call('LRANGE', KEYS[2], 0, -1)
+            for i = 1, #entries do
+                result[i + 1] = entries[i]
+            end
+            return result
+            """;
+
+    private final DefaultRedisScript<Long> appendScript = new DefaultRedisScript<>(APPEND_SCRIPT, Long.class);
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private final DefaultRedisScript<List> readScript = new DefaultRedisScript<>(READ_SCRIPT, List.class);
+
+    public long append(UUID showtimeId, String json, String channel) {
+        Long seq = redisTemplate.execute(appendScript,
+                List.of(SEQ_KEY_PREFIX + showtimeId, LOG_KEY_PREFIX + showtimeId),
+                json, String.valueOf(bufferSize), String.valueOf(logTtlSeconds), String.valueOf(SEQ_TTL_SECONDS),
+                channel);
+        return seq != null ? seq : 0;
+    }
+
+    /**
+     * Các frame có seq > lastSeq. {@link Replay#complete()} = false nếu ring buffer không còn đủ
+     * (client phải nhận snapshot).
+     */
+    public Replay since(UUID showtimeId, long lastSeq) {
+        @SuppressWarnings("unchecked")
+        List<String> result = redisTemplate.execute(readScript,
+                List.of(SEQ_KEY_PREFIX + showtimeId, LOG_KEY_PREFIX + showtimeId));
+        if (result == null || result.isEmpty()) {
+            return new Replay(0, List.of(), false);
+        }
+
+        long currentSeq = Long.parseLong(result.get(0));
+        List<Entry> missed = new ArrayList<>();
+        long oldestSeq = Long.MAX_VALUE;
+        for (int i = 1; i < result.size(); i++) {
+            Entry entry = Entry.parse(result.get(i));
+            if (entry == null) {
+                continue;
+            }
+            oldestSeq = Math.min(oldestSeq, entry.seq());
+            if (entry.seq() > lastSeq) {
+                missed.add(entry);
+            }
+        }
+
+        boolean complete = lastSeq > 0 && lastSeq <= currentSeq
+                && (lastSeq == currentSeq || oldestSeq <= lastSeq + 1);
+        return new Replay(currentSeq, complete ? missed : List.of(), complete);
+    }
+
+    public record Entry(long seq, String json) {
+
+        public static Entry parse(String entry) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                return null;
+            }
+            try {
+                return new Entry(Long.parseLong(entry.substring(0, separator)), entry.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    public record Replay(long currentSeq, List<Entry> missed, boolean complete) {
+    }
+}
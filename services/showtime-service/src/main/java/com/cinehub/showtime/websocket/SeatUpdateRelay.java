@@ -0,0 +1,72 @@
+package com.cinehub.showtime.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Phát frame WebSocket của suất chiếu qua Redis pub/sub (kênh seat-updates:{showtimeId})
+ * để mọi replica showtime-service đều đẩy tới các session đang kết nối vào mình.
+ * Replica gửi cũng nhận lại frame qua Redis, nên chỉ có 1 đường phát.
+ * Mỗi frame được đánh seq và lưu vào {@link SeatUpdateLog} để client kết nối lại có thể bắt kịp.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SeatUpdateRelay {
+
+    public static final String CHANNEL_PREFIX = "seat-updates:";
+
+    private final ObjectMapper objectMapper;
+    private final SeatUpdateLog seatUpdateLog;
+    private final SeatLockWebSocketHandler webSocketHandler;
+    private final WebSocketMetrics metrics;
+
+    public void publish(UUID showtimeId, Object message) {
+        String json;
+        try {
+            json = metrics.timeSerialization("json", () -> serialize(message));
+        } catch (Exception e) {
+            log.error("Error serializing seat update for showtime {}: {}", showtimeId, e.getMessage());
+            return;
+        }
+
+        try {
+            seatUpdateLog.append(showtimeId, json, CHANNEL_PREFIX + showtimeId);
+        } catch (Exception e) {
+            // Redis lỗi: vẫn đẩy cho session trên replica này, frame không có seq
+            log.warn("Failed to relay seat update for showtime {}: {}. Broadcasting locally.", showtimeId,
+                    e.getMessage());
+            webSocketHandler.broadcastFrame(showtimeId, 0, json);
+        }
+    }
+
+    private String serialize(Object message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gọi bởi MessageListenerAdapter khi nhận frame "{seq}:{json}" từ Redis.
+     */
+    public void handleMessage(String message, String channel) {
+        try {
+            UUID showtimeId = UUID.fromString(channel.substring(CHANNEL_PREFIX.length()));
+            SeatUpdateLog.Entry entry = SeatUpdateLog.Entry.parse(message);
+            if (entry != null) {
+                webSocketHandler.broadcastFrame(showtimeId, entry.seq(), entry.json());
+            } else {
+                webSocketHandler.broadcastFrame(showtimeId, 0, message);
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring seat update on invalid channel {}", channel);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.cinehub.showtime.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+
+/**
+ * Hàng đợi gửi có giới hạn cho 1 WebSocket session.
+ * Luồng gọi chỉ enqueue (không chặn), việc gửi chạy trên executor và tuần tự theo từng session,
+ * nên client chậm không làm chậm request khóa ghế hay các client khác.
+ */
+@Slf4j
+class SessionSendQueue {
+
+    enum OverflowPolicy {
+        DROP_OLDEST, // bỏ frame cũ nhất còn trong hàng đợi
+        CLOSE // đóng session, client kết nối lại và tải lại sơ đồ ghế
+    }
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final int capacity;
+    private final long sendTimeLimitMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final WebSocketMetrics metrics;
+
+    private final Deque<QueuedFrame> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closing;
+    private volatile long sendStartedAt;
+
+    SessionSendQueue(WebSocketSession session, Executor executor, int capacity, long sendTimeLimitMillis,
+            OverflowPolicy overflowPolicy, WebSocketMetrics metrics) {
+        this.session = session;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return false nếu frame bị bỏ hoặc session bị đóng do quá tải
+     */
+    boolean enqueue(WebSocketMessage<?> message) {
+        synchronized (this) {
+            if (closing || !session.isOpen()) {
+                return false;
+            }
+
+            long startedAt = sendStartedAt;
+            if (startedAt > 0 && System.currentTimeMillis() - startedAt > sendTimeLimitMillis) {
+                log.warn("WebSocket session {} blocked on send for more than {}ms. Closing.", session.getId(),
+                        sendTimeLimitMillis);
+                closeAsync(CloseStatus.SESSION_NOT_RELIABLE);
+                return false;
+            }
+
+            if (queue.size() >= capacity) {
+                if (overflowPolicy == OverflowPolicy.CLOSE) {
+                    log.warn("WebSocket session {} send buffer full ({} frames). Closing.", session.getId(),
+                            capacity);
+                    closeAsync(CloseStatus.SESSION_NOT_RELIABLE);
+                    return false;
+                }
+                queue.pollFirst();
+            }
+
+            queue.addLast(new QueuedFrame(message, System.nanoTime()));
+            if (draining) {
+                return true;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+        return true;
+    }
+
+    int size() {
+        synchronized (this) {
+            return queue.size();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            QueuedFrame frame;
+            synchronized (this) {
+                frame = queue.pollFirst();
+                if (frame == null || closing) {
+                    draining = false;
+                    return;
+                }
+            }
+
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                if (session.isOpen()) {
+                    session.sendMessage(frame.message());
+                    metrics.recordSent(frame.message() instanceof BinaryMessage ? "binary" : "text",
+                            frame.message().getPayloadLength(), frame.enqueuedAtNanos());
+                }
+            } catch (Exception e) {
+                log.warn("Error sending to WebSocket session {}: {}", session.getId(), e.getMessage());
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+
+    private void closeAsync(CloseStatus status) {
+        closing = true;
+        queue.clear();
+        metrics.recordClosed(WebSocketMetrics.CLOSE_SLOW_CONSUMER);
+        executor.execute(() -> {
+            try {
+                session.close(status);
+            } catch (Exception e) {
+                log.debug("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    private record QueuedFrame(WebSocketMessage<?> message, long enqueuedAtNanos) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.cinehub.showtime.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Metric cho tầng WebSocket, xem qua /actuator/metrics.
+ * - websocket.sessions: số session đang mở trên node
+ * - websocket.sessions.showtime: số session theo suất chiếu (chỉ các suất chiếu đang có client)
+ * - websocket.frames.sent / websocket.bytes.sent: số frame và số byte đã gửi theo loại frame (text, binary)
+ * - websocket.broadcast.latency: thời gian từ lúc frame vào hàng đợi tới lúc ghi xong ra socket
+ * - websocket.serialization: thời gian serialize frame (json, binary)
+ * - websocket.sessions.closed: số session bị server đóng theo lý do
+ */
+@Component
+@RequiredArgsConstructor
+public class WebSocketMetrics {
+
+    public static final String CLOSE_TRANSPORT_ERROR = "transport_error";
+    public static final String CLOSE_SLOW_CONSUMER = "slow_consumer";
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final Map<UUID, Gauge> showtimeGauges = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerNodeGauge() {
+        Gauge.builder("websocket.sessions", openSessions, AtomicInteger::get)
+                .description("Open WebSocket sessions on this node")
+                .register(meterRegistry);
+    }
+
+    public void sessionOpened() {
+        openSessions.incrementAndGet();
+    }
+
+    public void sessionClosed() {
+        openSessions.decrementAndGet();
+    }
+
+    /**
+     * Gauge đọc trực tiếp tập session của suất chiếu, gỡ khi suất chiếu không còn client
+     * để số time series không tăng theo số suất chiếu từng có người xem.
+     */
+    public void registerShowtime(UUID showtimeId, Collection<?> sessions) {
+        showtimeGauges.computeIfAbsent(showtimeId, id -> Gauge.builder("websocket.sessions.showtime",
+                sessions, Collection::size)
+                .description("Open WebSocket sessions per showtime")
+                .tag("showtime", id.toString())
+                .register(meterRegistry));
+    }
+
+    public void removeShowtime(UUID showtimeId) {
+        Gauge gauge = showtimeGauges.remove(showtimeId);
+        if (gauge != null) {
+            meterRegistry.remove(gauge);
+        }
+    }
+
+    public void recordSent(String frameType, int bytes, long enqueuedAtNanos) {
+        Counter.builder("websocket.frames.sent")
+                .description("WebSocket frames written to sessions")
+                .tag("type", frameType)
+                .register(meterRegistry)
+                .increment();
+        Counter.builder("websocket.bytes.sent")
+                .description("WebSocket payload bytes written to sessions")
+                .tag("type", frameType)
+                .register(meterRegistry)
+                .increment(bytes);
+        Timer.builder("websocket.broadcast.latency")
+                .description("Time from enqueueing a frame to writing it to the session")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - enqueuedAtNanos));
+    }
+
+    public <T> T timeSerialization(String format, Supplier<T> serializer) {
+        return Timer.builder("websocket.serialization")
+                .description("Time spent serializing WebSocket frames")
+                .tag("format", format)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(serializer);
+    }
+
+    public void recordClosed(String reason) {
+        Counter.builder("websocket.sessions.closed")
+                .description("WebSocket sessions closed by the server")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
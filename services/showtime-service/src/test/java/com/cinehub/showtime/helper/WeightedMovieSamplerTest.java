@@ -0,0 +1,72 @@
+package com.cinehub.showtime.helper;
+
+import com.cinehub.showtime.client.MovieSummaryResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WeightedMovieSamplerTest {
+
+    private static final int DRAWS = 200_000;
+
+    @Test
+    void samplesOnlyFittingMoviesInProportionToWeight() {
+        MovieSummaryResponse short1 = movie(90, 1.0);
+        MovieSummaryResponse short2 = movie(90, 3.0);
+        MovieSummaryResponse medium = movie(120, 4.0);
+        MovieSummaryResponse longest = movie(180, 100.0);
+        WeightedMovieSampler sampler = WeightedMovieSampler.of(List.of(longest, medium, short2, short1),
+                MovieSummaryResponse::getPopularity);
+
+        Map<MovieSummaryResponse, Integer> counts = draw(sampler, 150);
+
+        assertThat(counts).doesNotContainKey(longest);
+        assertThat(share(counts, short1)).isCloseTo(1.0 / 8, within(0.01));
+        assertThat(share(counts, short2)).isCloseTo(3.0 / 8, within(0.01));
+        assertThat(share(counts, medium)).isCloseTo(4.0 / 8, within(0.01));
+        assertThat(sampler.sample(new SplittableRandom(), 60)).isNull();
+    }
+
+    @Test
+    void zeroWeightsFallBackToUniform() {
+        MovieSummaryResponse first = movie(90, 0.0);
+        MovieSummaryResponse second = movie(100, 0.0);
+        MovieSummaryResponse weighted = movie(200, 5.0);
+        WeightedMovieSampler sampler = WeightedMovieSampler.of(List.of(first, second, weighted),
+                MovieSummaryResponse::getPopularity);
+
+        Map<MovieSummaryResponse, Integer> counts = draw(sampler, 120);
+
+        assertThat(share(counts, first)).isCloseTo(0.5, within(0.01));
+        assertThat(share(counts, second)).isCloseTo(0.5, within(0.01));
+    }
+
+    private static Map<MovieSummaryResponse, Integer> draw(WeightedMovieSampler sampler, long maxDuration) {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<MovieSummaryResponse, Integer> counts = new HashMap<>();
+        for (int i = 0; i < DRAWS; i++) {
+            counts.merge(sampler.sample(random, maxDuration), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static double share(Map<MovieSummaryResponse, Integer> counts, MovieSummaryResponse movie) {
+        return counts.getOrDefault(movie, 0) / (double) DRAWS;
+    }
+
+    private static MovieSummaryResponse movie(int duration, double popularity) {
+        MovieSummaryResponse movie = new MovieSummaryResponse();
+        movie.setId(UUID.randomUUID());
+        movie.setTitle("Movie " + duration + "/" + popularity);
+        movie.setTime(duration);
+        movie.setPopularity(popularity);
+        return movie;
+    }
+}
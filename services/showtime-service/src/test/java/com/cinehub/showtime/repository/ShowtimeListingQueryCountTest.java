@@ -0,0 +1,159 @@
+package com.cinehub.showtime.repository;
+
+import com.cinehub.showtime.client.MovieServiceClient;
+import com.cinehub.showtime.dto.response.ShowtimeDetailResponse;
+import com.cinehub.showtime.dto.response.ShowtimeResponse;
+import com.cinehub.showtime.entity.Province;
+import com.cinehub.showtime.entity.Room;
+import com.cinehub.showtime.entity.Seat;
+import com.cinehub.showtime.entity.Showtime;
+import com.cinehub.showtime.entity.Theater;
+import com.cinehub.showtime.mapper.ShowtimeMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Các truy vấn danh sách suất chiếu phải load rạp/phòng trong cùng câu SELECT:
+ * số câu lệnh SQL không được tăng theo số suất chiếu hay số phòng (N+1).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import(ShowtimeMapper.class)
+class ShowtimeListingQueryCountTest {
+
+    private static final int THEATERS = 3;
+    private static final int ROOMS_PER_THEATER = 2;
+    private static final int SHOWTIMES_PER_ROOM = 3;
+    private static final int TOTAL_SHOWTIMES = THEATERS * ROOMS_PER_THEATER * SHOWTIMES_PER_ROOM;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private ShowtimeRepositoryCustom showtimeRepositoryCustom;
+
+    @Autowired
+    private ShowtimeMapper showtimeMapper;
+
+    @MockitoBean
+    private MovieServiceClient movieServiceClient;
+
+    private Statistics statistics;
+    private UUID provinceId;
+    private UUID theaterId;
+    private UUID movieId;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        when(movieServiceClient.getMovieTitle(any())).thenReturn("Movie");
+
+        movieId = UUID.randomUUID();
+        base = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+        Province province = entityManager.persist(Province.builder().name("Hà Nội").nameEn("Ha Noi").build());
+        provinceId = province.getId();
+        for (int t = 0; t < THEATERS; t++) {
+            Theater theater = entityManager.persist(Theater.builder()
+                    .province(province).name("Rạp " + t).nameEn("Theater " + t).build());
+            if (t == 0) {
+                theaterId = theater.getId();
+            }
+            for (int r = 0; r < ROOMS_PER_THEATER; r++) {
+                Room room = entityManager.persist(Room.builder()
+                        .theater(theater).name("Phòng " + r).nameEn("Room " + r).seatCount(2).build());
+                for (int s = 0; s < 2; s++) {
+                    entityManager.persist(Seat.builder()
+                            .room(room).rowLabel("A").columnIndex(s).seatNumber("A" + s).type("NORMAL").build());
+                }
+                for (int i = 0; i < SHOWTIMES_PER_ROOM; i++) {
+                    LocalDateTime start = base.plusHours(3L * i);
+                    entityManager.persist(Showtime.builder()
+                            .movieId(movieId).theater(theater).room(room)
+                            .startTime(start).endTime(start.plusHours(2)).build());
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void provinceListingWithDetailsUsesConstantStatements() {
+        List<Showtime> showtimes = showtimeRepositoryCustom.findAvailableShowtimesWithFiltersDynamic(
+                provinceId, null, null, null, null, null, null, null, null, LocalDateTime.now(),
+                PageRequest.of(0, 50, Sort.by("startTime"))).getContent();
+        List<ShowtimeDetailResponse> responses = showtimeMapper.toShowtimeDetailResponses(showtimes);
+
+        assertThat(responses).hasSize(TOTAL_SHOWTIMES);
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.getRoomName()).isNotNull();
+            assertThat(response.getProvinceName()).isEqualTo("Hà Nội");
+            assertThat(response.getTotalSeats()).isEqualTo(2);
+        });
+        // Trang + count, rồi đếm ghế theo phòng + đếm ghế đã đặt theo suất chiếu
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void cursorListingWithDetailsUsesConstantStatements() {
+        List<Showtime> showtimes = showtimeRepositoryCustom.findAvailableShowtimesAfter(
+                provinceId, null, null, null, null, null, null, null, null, LocalDateTime.now(), null,
+                TOTAL_SHOWTIMES + 1);
+        List<ShowtimeDetailResponse> responses = showtimeMapper.toShowtimeDetailResponses(showtimes);
+
+        assertThat(responses).hasSize(TOTAL_SHOWTIMES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void movieScheduleByProvinceIsSingleStatement() {
+        List<ShowtimeResponse> responses = showtimeRepository
+                .findByMovieAndProvince(movieId, provinceId, LocalDateTime.now()).stream()
+                .map(showtimeMapper::toShowtimeResponse)
+                .toList();
+
+        assertThat(responses).hasSize(TOTAL_SHOWTIMES);
+        assertThat(responses).allSatisfy(response -> assertThat(response.getRoomName()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void theaterScheduleIsSingleStatement() {
+        List<Showtime> showtimes = showtimeRepository.findByTheaterIdAndStartTimeBetween(
+                theaterId, base.minusHours(1), base.plusDays(1));
+        showtimes.forEach(showtimeMapper::toShowtimeInfo);
+
+        assertThat(showtimes).hasSize(ROOMS_PER_THEATER * SHOWTIMES_PER_ROOM);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,158 @@
+package com.cinehub.showtime.service;
+
+import com.cinehub.showtime.client.MovieServiceClient;
+import com.cinehub.showtime.client.MovieSummaryResponse;
+import com.cinehub.showtime.config.ShowtimeAutoGenerateConfig;
+import com.cinehub.showtime.dto.response.AutoGenerateShowtimesResponse;
+import com.cinehub.showtime.entity.Room;
+import com.cinehub.showtime.entity.Showtime;
+import com.cinehub.showtime.entity.Theater;
+import com.cinehub.showtime.helper.ShowtimeGenerationHelper;
+import com.cinehub.showtime.mapper.ShowtimeMapper;
+import com.cinehub.showtime.producer.ShowtimeProducer;
+import com.cinehub.showtime.repository.RoomRepository;
+import com.cinehub.showtime.repository.ShowtimeRepository;
+import com.cinehub.showtime.repository.ShowtimeRepositoryCustom;
+import com.cinehub.showtime.repository.TheaterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sinh lịch tự động 30 ngày cho 50 rạp với repository và movie-service giả lập: kiểm tra số truy vấn
+ * đọc không tăng theo số ngày/phòng, số lần ghi theo lô và không có suất chiếu chồng nhau trong 1 phòng.
+ * Không đo hiệu năng ghi JDBC (saveAll chỉ được đếm).
+ */
+@ExtendWith(MockitoExtension.class)
+class ShowtimeAutoGeneratePlanningTest {
+
+    private static final int DAYS = 30;
+    private static final int THEATERS = 50;
+    private static final int ROOMS_PER_THEATER = 6;
+    private static final int MOVIES = 20;
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    @Mock
+    private ShowtimeRepository showtimeRepository;
+    @Mock
+    private TheaterRepository theaterRepository;
+    @Mock
+    private RoomRepository roomRepository;
+    @Mock
+    private ShowtimeRepositoryCustom showtimeRepositoryCustom;
+    @Mock
+    private MovieServiceClient movieServiceClient;
+    @Mock
+    private ShowtimeProducer showtimeProducer;
+    @Mock
+    private ShowtimeMapper showtimeMapper;
+    @Mock
+    private SeatMapCacheService seatMapCacheService;
+    @Mock
+    private ScheduleCacheService scheduleCacheService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ShowtimeService showtimeService;
+
+    @BeforeEach
+    void setUp() {
+        ShowtimeAutoGenerateConfig config = new ShowtimeAutoGenerateConfig();
+        config.setWriteBatchSize(WRITE_BATCH_SIZE);
+        showtimeService = new ShowtimeService(showtimeRepository, theaterRepository, roomRepository,
+                showtimeRepositoryCustom, movieServiceClient, showtimeProducer, showtimeMapper,
+                new ShowtimeGenerationHelper(config), config, seatMapCacheService, scheduleCacheService,
+                transactionManager);
+    }
+
+    @Test
+    void plansThirtyDaysForFiftyTheatersWithPrefetchedReadsAndBatchedWrites() {
+        LocalDate startDate = LocalDate.now().plusDays(1);
+        LocalDate endDate = startDate.plusDays(DAYS - 1);
+
+        List<Theater> theaters = new ArrayList<>();
+        List<Room> rooms = new ArrayList<>();
+        for (int t = 0; t < THEATERS; t++) {
+            Theater theater = Theater.builder().id(UUID.randomUUID()).name("Rạp " + t).build();
+            theaters.add(theater);
+            for (int r = 0; r < ROOMS_PER_THEATER; r++) {
+                rooms.add(Room.builder().id(UUID.randomUUID()).theater(theater).name("Phòng " + r).build());
+            }
+        }
+        List<MovieSummaryResponse> movies = new ArrayList<>();
+        for (int m = 0; m < MOVIES; m++) {
+            MovieSummaryResponse movie = new MovieSummaryResponse();
+            movie.setId(UUID.randomUUID());
+            movie.setTitle("Movie " + m);
+            movie.setTime(90 + (m % 5) * 15);
+            movie.setPopularity((double) (m % 20));
+            movie.setStartDate(startDate.minusDays(m % 7));
+            movies.add(movie);
+        }
+
+        when(movieServiceClient.getAvailableMoviesForDateRange(startDate, endDate)).thenReturn(movies);
+        when(theaterRepository.findAll()).thenReturn(theaters);
+        when(roomRepository.findByTheaterIdIn(anyCollection())).thenReturn(rooms);
+        when(showtimeRepository.findRoomSchedules(anyCollection(), any(), any())).thenReturn(List.of());
+        AtomicInteger saveCalls = new AtomicInteger();
+        List<Showtime> saved = new ArrayList<>();
+        when(showtimeRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<Showtime> chunk = invocation.getArgument(0);
+            saveCalls.incrementAndGet();
+            saved.addAll(chunk);
+            return new ArrayList<>(chunk);
+        });
+
+        AutoGenerateShowtimesResponse response = showtimeService.autoGenerateShowtimes(startDate, endDate);
+
+        assertThat(response.getTotalGenerated()).isEqualTo(saved.size()).isGreaterThan(rooms.size() * DAYS);
+        // Lấy trước dữ liệu: số truy vấn cố định, ghi theo lô
+        verify(theaterRepository).findAll();
+        verify(roomRepository).findByTheaterIdIn(anyCollection());
+        verify(showtimeRepository).findRoomSchedules(anyCollection(), any(), any());
+        assertThat(saveCalls.get()).isEqualTo((saved.size() + WRITE_BATCH_SIZE - 1) / WRITE_BATCH_SIZE);
+
+        // Không suất chiếu nào chồng lên suất khác trong cùng phòng
+        saved.stream()
+                .collect(Collectors.groupingBy(st -> st.getRoom().getId()))
+                .values()
+                .forEach(roomShowtimes -> {
+                    List<Showtime> sorted = roomShowtimes.stream()
+                            .sorted(Comparator.comparing(Showtime::getStartTime))
+                            .toList();
+                    for (int i = 1; i < sorted.size(); i++) {
+                        assertThat(sorted.get(i).getStartTime()).isAfterOrEqualTo(sorted.get(i - 1).getEndTime());
+                    }
+                });
+    }
+
+    @Test
+    void endDateBeforeStartDateGeneratesNothing() {
+        LocalDate startDate = LocalDate.now().plusDays(5);
+
+        AutoGenerateShowtimesResponse response = showtimeService.autoGenerateShowtimes(startDate,
+                startDate.minusDays(1));
+
+        assertThat(response.getTotalGenerated()).isZero();
+        verifyNoInteractions(movieServiceClient, theaterRepository, roomRepository, showtimeRepository);
+    }
+}